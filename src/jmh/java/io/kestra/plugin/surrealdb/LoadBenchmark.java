@@ -0,0 +1,154 @@
+package io.kestra.plugin.surrealdb;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.openjdk.jmh.annotations.*;
+
+import io.kestra.core.serializers.JacksonMapper;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Rows per second through the send path of {@link Load}: batches dealt round robin over {@code connections} shards,
+ * each encoding its batches on its own thread and pipelining up to {@code maxInFlight} of them on its connection.
+ * <p>
+ * The server is an in-process endpoint acknowledging every request as soon as it is read, so the numbers are the
+ * client side ceiling, encoding and socket included: {@code ./gradlew jmh -Pjmh.includes=LoadBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LoadBenchmark {
+    private static final int ROWS = 100_000;
+    private static final String STATEMENT = "INSERT INTO bench $" + Load.ROWS_PARAMETER;
+
+    @Param({"1", "4"})
+    public int connections;
+
+    @Param({"1", "8"})
+    public int maxInFlight;
+
+    @Param({"1000", "5000"})
+    public int chunk;
+
+    private AcknowledgingServer server;
+    private List<SurrealDBRpcClient> clients;
+    private ExecutorService executor;
+    private Scheduler scheduler;
+    private List<Object> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new AcknowledgingServer();
+        server.start();
+        if (!server.started.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Benchmark server did not start");
+        }
+
+        clients = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            SurrealDBRpcClient client = new SurrealDBRpcClient("127.0.0.1", server.getPort(), false);
+            client.open(Duration.ofSeconds(10), null, null, "bench", "bench");
+            clients.add(client);
+        }
+
+        executor = Executors.newFixedThreadPool(connections, Thread.ofVirtual().name("bench-load-", 0).factory());
+        scheduler = Schedulers.fromExecutorService(executor);
+
+        rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", i);
+            for (int column = 0; column < 10; column++) {
+                row.put("c_string_" + column, "value-" + i + "-" + column);
+                row.put("c_number_" + column, i * 11 + column + 0.25);
+            }
+            rows.add(row);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        clients.forEach(SurrealDBRpcClient::close);
+        scheduler.dispose();
+        executor.shutdownNow();
+        server.stop(1000);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Long load() {
+        return Flux.fromIterable(rows)
+            .buffer(chunk)
+            .index()
+            .groupBy(indexed -> (int) (indexed.getT1() % connections), connections * maxInFlight)
+            .flatMap(
+                shardBatches -> {
+                    SurrealDBRpcClient client = clients.get(shardBatches.key());
+                    return shardBatches.publishOn(scheduler, maxInFlight).flatMap(
+                        indexed -> Mono.fromCallable(() -> JacksonMapper.ofJson().writeValueAsString(List.of(STATEMENT, Map.of(Load.ROWS_PARAMETER, indexed.getT2()))))
+                            .flatMap(params -> Mono.fromFuture(() -> client.callAsyncJson("query", params)))
+                            .thenReturn((long) indexed.getT2().size()),
+                        maxInFlight
+                    );
+                },
+                connections
+            )
+            .reduce(0L, Long::sum)
+            .block();
+    }
+
+    private static final class AcknowledgingServer extends WebSocketServer {
+        private static final Pattern ID = Pattern.compile("\"id\":\"([^\"]+)\"");
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        AcknowledgingServer() {
+            super(new InetSocketAddress("127.0.0.1", 0));
+            this.setReuseAddr(true);
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+
+        @Override
+        public void onOpen(WebSocket socket, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(WebSocket socket, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(WebSocket socket, Exception ex) {
+        }
+
+        @Override
+        public void onMessage(WebSocket socket, String message) {
+            // the id is the first field written by the client, no need to parse the whole batch
+            Matcher id = ID.matcher(message);
+            if (id.find()) {
+                socket.send("{\"id\":\"" + id.group(1) + "\",\"result\":[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[]}]}");
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package io.kestra.plugin.surrealdb;
+
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import com.surrealdb.driver.model.QueryResult;
+
+import io.kestra.core.serializers.FileSerde;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Where the time of {@link Query#run} goes once the response is received: decoding the JSON-RPC response the way
+ * {@code surrealdb-driver} does with {@link TypedRow} values, flattening the statements into rows, and encoding the rows to ION.
+ * <p>
+ * Responses are canned, no server is needed: {@code ./gradlew jmh -Pjmh.includes=QueryResultBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QueryResultBenchmark {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+    private static final Type RESULTS_TYPE = TypeToken.getParameterized(List.class, TypeToken.getParameterized(QueryResult.class, TypedRow.class).getType()).getType();
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"WIDE", "NESTED"})
+    public Shape shape;
+
+    private String response;
+    private List<QueryResult<Object>> results;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("{\"id\":\"1\",\"result\":[{\"time\":\"12.5ms\",\"status\":\"OK\",\"result\":[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            shape.appendRow(builder, i);
+        }
+        response = builder.append("]}]}").toString();
+        results = decode(response);
+    }
+
+    @Benchmark
+    public List<QueryResult<Object>> decode() {
+        return decode(response);
+    }
+
+    @Benchmark
+    public void flatten(Blackhole blackhole) {
+        Query.getResultStream(results).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public Long serializeIon() throws Exception {
+        return FileSerde.writeAll(Writer.nullWriter(), Flux.fromStream(Query.getResultStream(results))).block();
+    }
+
+    private static List<QueryResult<Object>> decode(String message) {
+        return GSON.fromJson(JsonParser.parseString(message).getAsJsonObject().get("result"), RESULTS_TYPE);
+    }
+
+    public enum Shape {
+        WIDE {
+            @Override
+            void appendRow(StringBuilder builder, int i) {
+                builder.append("{\"id\":\"bench:").append(i).append('"');
+                for (int column = 0; column < 30; column++) {
+                    builder.append(",\"c_string_").append(column).append("\":\"value-").append(i).append('-').append(column).append('"');
+                    builder.append(",\"c_number_").append(column).append("\":").append(i * 31 + column).append(".25");
+                }
+                builder.append(",\"c_bool\":").append(i % 2 == 0).append(",\"c_datetime\":\"2024-05-01T10:00:00.").append(String.format("%03d", i % 1000)).append("Z\"}");
+            }
+        },
+        NESTED {
+            @Override
+            void appendRow(StringBuilder builder, int i) {
+                builder.append("{\"id\":\"bench:").append(i).append("\",\"customer\":{\"name\":\"customer-").append(i)
+                    .append("\",\"address\":{\"city\":\"Paris\",\"zip\":\"750").append(i % 20).append("\",\"geo\":[2.35,48.85]}}")
+                    .append(",\"items\":[");
+                for (int item = 0; item < 5; item++) {
+                    if (item > 0) {
+                        builder.append(',');
+                    }
+                    builder.append("{\"sku\":\"sku-").append(item).append("\",\"quantity\":").append(item + 1)
+                        .append(",\"tags\":[\"a\",\"b\"],\"price\":{\"amount\":").append(item * 10).append(".5,\"currency\":\"EUR\"}}");
+                }
+                builder.append("]}");
+            }
+        };
+
+        abstract void appendRow(StringBuilder builder, int i);
+    }
+}
@@ -0,0 +1,139 @@
+package io.kestra.plugin.surrealdb;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.runners.RunContext;
+
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+/**
+ * Batch size of a write path, adjusted to the observed latency when a target is given: it grows by a quarter while
+ * batches run under the target, shrinks by a quarter above it, and is halved when a request times out. Other failures,
+ * such as statement errors, say nothing about the load of the server and leave it unchanged.
+ * <p>
+ * Latency is the execution time reported by SurrealDB when available, the round trip otherwise. Without a target, the
+ * size never changes. Every method is safe to call from the threads completing the batches.
+ */
+final class AdaptiveBatch {
+    static final Duration RETRY_BACKOFF = Duration.ofMillis(200);
+    static final Duration MAX_RETRY_BACKOFF = Duration.ofSeconds(10);
+    static final double RETRY_JITTER = 0.5;
+
+    private final Duration targetLatency;
+    private final int minSize;
+    private final int maxSize;
+    private final Logger logger;
+
+    private int size;
+    private int smallest;
+    private int largest;
+    private int changes;
+
+    private AdaptiveBatch(int initialSize, int maxSize, Duration targetLatency, Logger logger) {
+        this.targetLatency = targetLatency;
+        this.minSize = 1;
+        this.maxSize = Math.max(initialSize, maxSize);
+        this.logger = logger;
+        this.size = initialSize;
+        this.smallest = initialSize;
+        this.largest = initialSize;
+    }
+
+    static AdaptiveBatch of(RunContext runContext, int initialSize, AdaptiveBatchInterface tuning) throws Exception {
+        if (initialSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive, got " + initialSize);
+        }
+
+        return new AdaptiveBatch(
+            initialSize,
+            runContext.render(tuning.getMaxChunk()).as(Integer.class).orElse(initialSize),
+            runContext.render(tuning.getTargetLatency()).as(Duration.class).orElse(null),
+            runContext.logger()
+        );
+    }
+
+    /**
+     * Exponential backoff with jitter, so that clients failing together do not retry together.
+     */
+    static RetryBackoffSpec backoff(int maxRetries) {
+        return Retry.backoff(maxRetries, RETRY_BACKOFF)
+            .maxBackoff(MAX_RETRY_BACKOFF)
+            .jitter(RETRY_JITTER);
+    }
+
+    /**
+     * Splits the source into batches of the size current when each batch starts.
+     */
+    <T> Flux<List<T>> batches(Flux<T> source) {
+        return Flux.defer(() -> {
+            int[] count = {0};
+            return source.bufferUntil(item -> {
+                if (++count[0] >= size()) {
+                    count[0] = 0;
+                    return true;
+                }
+                return false;
+            });
+        });
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void onSuccess(Duration latency) {
+        if (targetLatency == null || latency == null) {
+            return;
+        }
+
+        if (latency.compareTo(targetLatency) <= 0) {
+            resize(size + Math.max(1, size / 4), latency);
+        } else {
+            resize(size - Math.max(1, size / 4), latency);
+        }
+    }
+
+    synchronized void onFailure(Throwable throwable) {
+        if (targetLatency != null && throwable instanceof TimeoutException) {
+            resize(size / 2, null);
+        }
+    }
+
+    synchronized int smallest() {
+        return smallest;
+    }
+
+    synchronized int largest() {
+        return largest;
+    }
+
+    private void resize(int candidate, Duration latency) {
+        int resized = Math.clamp(candidate, minSize, maxSize);
+        if (resized == size) {
+            return;
+        }
+
+        logger.debug("Batch size {} -> {} ({})", size, resized, latency == null ? "timeout" : latency + " for a target of " + targetLatency);
+        size = resized;
+        smallest = Math.min(smallest, resized);
+        largest = Math.max(largest, resized);
+        changes++;
+    }
+
+    /**
+     * Logs the sizes chosen and counts the changes. Sizes are not metrics, as counters of several runs would be summed.
+     */
+    synchronized void report(RunContext runContext) {
+        if (targetLatency != null) {
+            logger.info("Batch size ended at {}, between {} and {} with {} changes", size, smallest, largest, changes);
+        }
+        runContext.metric(Counter.of("batch.size.changes", changes));
+    }
+}
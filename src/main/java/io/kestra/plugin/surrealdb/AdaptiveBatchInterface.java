@@ -0,0 +1,26 @@
+package io.kestra.plugin.surrealdb;
+
+import java.time.Duration;
+
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.property.Property;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public interface AdaptiveBatchInterface {
+
+    @Schema(
+        title = "Target batch latency",
+        description = "When set, `chunk` is only the initial batch size: it grows while batches execute within this duration on the server, shrinks when they take longer, and is halved after a request timed out. " +
+            "The final, smallest and largest sizes are returned in the `batchSize`, `smallestBatchSize` and `largestBatchSize` outputs, and the number of changes in the `batch.size.changes` metric."
+    )
+    @PluginProperty(group = "advanced")
+    Property<Duration> getTargetLatency();
+
+    @Schema(
+        title = "Largest batch size",
+        description = "Upper bound of the batch size when `targetLatency` is set; default is 10000."
+    )
+    @PluginProperty(group = "advanced")
+    Property<Integer> getMaxChunk();
+}
@@ -0,0 +1,325 @@
+package io.kestra.plugin.surrealdb;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+
+import com.surrealdb.driver.model.QueryResult;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.executions.metrics.Timer;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.serializers.FileSerde;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@SuperBuilder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@Schema(
+    title = "Run SurrealQL writes in transactional groups",
+    description = "Wraps groups of `groupSize` statements in `BEGIN TRANSACTION; ... COMMIT TRANSACTION;` and sends each group in a single request. " +
+        "Statements come from `statements`, or from `query` run once per record of the ION file `from`, with the record bound to `$row`. " +
+        "A group is written entirely or not at all. Groups that time out or lose their connection are retried, on a new connection when needed; groups failing on a statement error are not, as they would fail again. " +
+        "Failed groups either fail the task or are skipped with `skipFailedGroups`."
+)
+@Plugin(
+    examples = {
+        @Example(
+            title = "Upsert every record of a file, 500 records per transaction.",
+            full = true,
+            code = """
+                id: surrealdb_batch
+                namespace: company.team
+
+                tasks:
+                  - id: extract
+                    type: io.kestra.plugin.core.http.Download
+                    uri: https://huggingface.co/datasets/kestra/datasets/raw/main/ion/customers.ion
+
+                  - id: upsert
+                    type: io.kestra.plugin.surrealdb.Batch
+                    host: localhost
+                    username: surreal_user
+                    password: "{{ secret('SURREALDB_PASSWORD') }}"
+                    database: surreal_db
+                    namespace: surreal_namespace
+                    from: "{{ outputs.extract.uri }}"
+                    query: UPDATE type::thing('customer', $row.customer_id) CONTENT $row
+                    groupSize: 500
+                """
+        ),
+        @Example(
+            title = "Apply a list of statements in transactions of 2 statements.",
+            full = true,
+            code = """
+                id: surrealdb_batch_statements
+                namespace: company.team
+
+                tasks:
+                  - id: apply
+                    type: io.kestra.plugin.surrealdb.Batch
+                    host: localhost
+                    database: surreal_db
+                    namespace: surreal_namespace
+                    groupSize: 2
+                    statements:
+                      - CREATE account:alice SET balance = 100
+                      - CREATE account:bob SET balance = 0
+                      - UPDATE account:alice SET balance -= 10
+                      - UPDATE account:bob SET balance += 10
+                """
+        )
+    }
+)
+public class Batch extends SurrealDBConnection implements RunnableTask<Batch.Output>, RequestTimeoutInterface {
+    static final String ROW_VARIABLE = "row";
+    static final String ROW_PARAMETER_PREFIX = "kestra_row_";
+
+    @Schema(
+        title = "Source file URI",
+        description = "Internal storage URI of an ION file; `query` runs once per record, with the record bound to `$row`. Requires `query`."
+    )
+    @PluginProperty(internalStorageURI = true, group = "main")
+    private Property<String> from;
+
+    @Schema(
+        title = "Statement run for each record",
+        description = "SurrealQL statement referencing the current record as `$row`, used with `from`."
+    )
+    @PluginProperty(group = "main")
+    private Property<String> query;
+
+    @Schema(
+        title = "Statements",
+        description = "SurrealQL statements to run in order, used when `from` is not set."
+    )
+    @PluginProperty(group = "main")
+    private Property<List<String>> statements;
+
+    @Schema(
+        title = "Statements per transaction"
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> groupSize = Property.ofValue(100);
+
+    @Schema(
+        title = "Retries per group",
+        description = "Number of times a group that timed out or lost its connection is sent again over a new connection, with a jittered exponential backoff. Statement errors are not retried. " +
+            "A transaction left unanswered may still have been committed, so retried groups are applied at least once: prefer statements that can run twice, such as `UPSERT` or `UPDATE ... CONTENT`."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> maxRetries = Property.ofValue(3);
+
+    @Schema(
+        title = "Skip failed groups",
+        description = "When `true`, a group still failing after its retries is rolled back and skipped, and the next groups are committed. " +
+            "When `false`, the task stops at the first failed group; groups committed before it are kept."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Boolean> skipFailedGroups = Property.ofValue(false);
+
+    @Builder.Default
+    private Property<Duration> requestTimeout = Property.ofValue(Duration.ofMinutes(5));
+
+    @Override
+    public Batch.Output run(RunContext runContext) throws Exception {
+        Logger logger = runContext.logger();
+
+        int groupSizeValue = runContext.render(groupSize).as(Integer.class).orElseThrow();
+        int maxRetriesValue = runContext.render(maxRetries).as(Integer.class).orElseThrow();
+        boolean skipFailedGroupsValue = runContext.render(skipFailedGroups).as(Boolean.class).orElseThrow();
+        String fromValue = runContext.render(from).as(String.class).orElse(null);
+        Duration requestTimeoutValue = runContext.render(requestTimeout).as(Duration.class).orElseThrow();
+
+        AtomicInteger groups = new AtomicInteger();
+        AtomicInteger failedGroups = new AtomicInteger();
+        AtomicInteger retries = new AtomicInteger();
+        long start = System.nanoTime();
+
+        long statementCount;
+        AtomicReference<SurrealDBClient> client = new AtomicReference<>(super.connect(runContext));
+        try (
+            BufferedReader reader = fromValue == null ? null : new BufferedReader(new InputStreamReader(runContext.storage().getFile(URI.create(fromValue))), FileSerde.BUFFER_SIZE)
+        ) {
+            Flux<Statement> statementFlux;
+            if (reader != null) {
+                String renderedQuery = runContext.render(query).as(String.class)
+                    .orElseThrow(() -> new IllegalArgumentException("`query` is required with `from`"));
+                statementFlux = FileSerde.readAll(reader).map(row -> new Statement(renderedQuery, row));
+            } else if (statements != null) {
+                statementFlux = Flux.fromIterable(runContext.render(statements).asList(String.class)).map(statement -> new Statement(statement, null));
+            } else {
+                throw new IllegalArgumentException("Either `from` with `query`, or `statements` is required");
+            }
+
+            try {
+                statementCount = statementFlux
+                    .buffer(groupSizeValue)
+                    .concatMap(group -> {
+                        int groupIndex = groups.getAndIncrement();
+                        String transaction = transaction(group);
+                        Map<String, Object> parameters = parameters(group);
+                        Mono<Long> committed = Mono.fromCallable(() -> connection(runContext, client))
+                            .flatMap(connection -> Mono.fromFuture(() -> connection.queryAsync(transaction, parameters))
+                                .timeout(requestTimeoutValue, Mono.error(() -> new TimeoutException("SurrealDB did not answer within the request timeout of " + requestTimeoutValue)))
+                                .doOnError(TimeoutException.class, e -> {
+                                    // the unanswered transaction may still commit, nothing else is sent on its socket
+                                    connection.invalidate();
+                                    connection.close();
+                                }))
+                            .map(results -> {
+                                checkStatements(results);
+                                return (long) group.size();
+                            })
+                            .retryWhen(AdaptiveBatch.backoff(maxRetriesValue)
+                                .filter(throwable -> isTransient(throwable, client.get()))
+                                .doBeforeRetry(signal -> retries.incrementAndGet()));
+
+                        if (!skipFailedGroupsValue) {
+                            return committed;
+                        }
+
+                        return committed.onErrorResume(throwable -> {
+                            failedGroups.incrementAndGet();
+                            logger.warn("Group {} of {} statements was rolled back and skipped", groupIndex, group.size(), unwrap(throwable));
+                            return Mono.just(0L);
+                        });
+                    })
+                    .reduce(0L, Long::sum)
+                    .blockOptional()
+                    .orElse(0L);
+            } catch (RuntimeException e) {
+                client.get().invalidate();
+                Throwable cause = unwrap(Exceptions.unwrap(e));
+                throw cause instanceof Exception exception ? exception : e;
+            }
+        } finally {
+            client.get().close();
+        }
+
+        runContext.metric(Counter.of("statements", statementCount));
+        runContext.metric(Counter.of("groups", groups.get()));
+        runContext.metric(Counter.of("groups.failed", failedGroups.get()));
+        runContext.metric(Counter.of("retries", retries.get()));
+        runContext.metric(Timer.of("duration", Duration.ofNanos(System.nanoTime() - start)));
+
+        return Output.builder()
+            .statementCount(statementCount)
+            .groups(groups.get())
+            .failedGroups(failedGroups.get())
+            .retries(retries.get())
+            .build();
+    }
+
+    /**
+     * Whether sending the group again may succeed: statement errors would fail the same way, while a request left
+     * unanswered or sent over a connection that went away may not have reached the server. The connection of an
+     * unanswered request is closed, so this also holds for timeouts.
+     */
+    static boolean isTransient(Throwable throwable, SurrealDBClient client) {
+        return throwable instanceof TimeoutException || isConnectionFailure(throwable, client);
+    }
+
+    /**
+     * Statements of the group, each record being bound to {@code $row} from its own parameter rather than inlined.
+     */
+    static String transaction(List<Statement> group) {
+        StringBuilder transaction = new StringBuilder("BEGIN TRANSACTION;\n");
+        for (int i = 0; i < group.size(); i++) {
+            Statement statement = group.get(i);
+            if (statement.row() != null) {
+                transaction.append("LET $").append(ROW_VARIABLE).append(" = $").append(ROW_PARAMETER_PREFIX).append(i).append(";\n");
+            }
+
+            String trimmed = statement.text().strip();
+            transaction.append(trimmed);
+            if (!trimmed.endsWith(";")) {
+                transaction.append(';');
+            }
+            transaction.append('\n');
+        }
+        return transaction.append("COMMIT TRANSACTION;").toString();
+    }
+
+    static Map<String, Object> parameters(List<Statement> group) {
+        Map<String, Object> parameters = new HashMap<>();
+        for (int i = 0; i < group.size(); i++) {
+            if (group.get(i).row() != null) {
+                parameters.put(ROW_PARAMETER_PREFIX + i, group.get(i).row());
+            }
+        }
+        return SurrealQL.parameters(parameters);
+    }
+
+    private static void checkStatements(List<QueryResult<Object>> results) {
+        for (QueryResult<Object> result : results) {
+            if (result.getStatus() != null && !"OK".equals(result.getStatus())) {
+                throw new IllegalStateException("Transaction failed with status " + result.getStatus());
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return Exceptions.isRetryExhausted(throwable) ? throwable.getCause() : throwable;
+    }
+
+    /**
+     * A statement of a group, with the record it runs for when read from {@code from}.
+     */
+    record Statement(String text, Object row) {
+    }
+
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(
+            title = "Number of statements committed"
+        )
+        private Long statementCount;
+
+        @Schema(
+            title = "Number of transactions sent"
+        )
+        private Integer groups;
+
+        @Schema(
+            title = "Number of transactions rolled back and skipped",
+            description = "Only non-zero with `skipFailedGroups: true`."
+        )
+        private Integer failedGroups;
+
+        @Schema(
+            title = "Number of transaction retries"
+        )
+        private Integer retries;
+    }
+}
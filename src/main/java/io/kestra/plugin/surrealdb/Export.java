@@ -0,0 +1,431 @@
+package io.kestra.plugin.surrealdb;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+
+import com.surrealdb.driver.model.QueryResult;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.executions.metrics.Timer;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.models.tasks.common.FetchType;
+import io.kestra.core.runners.RunContext;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+@SuperBuilder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@Schema(
+    title = "Export a SurrealDB table in parallel partitions",
+    description = "Splits the table into `partitions` ranges of `partitionField`, between its lowest and highest values, and exports them to internal storage over `connections` connections at once, " +
+        "each partition being read page by page on its own connection and written to its own ION file. Set `merge: true` to also get all partitions in a single file."
+)
+@Plugin(
+    examples = {
+        @Example(
+            title = "Export a large table in 8 partitions of its numeric record ids, over 4 connections.",
+            full = true,
+            code = """
+                id: surrealdb_export
+                namespace: company.team
+
+                tasks:
+                  - id: export
+                    type: io.kestra.plugin.surrealdb.Export
+                    host: localhost
+                    username: surreal_user
+                    password: "{{ secret('SURREALDB_PASSWORD') }}"
+                    database: surreal_db
+                    namespace: surreal_namespace
+                    table: events
+                    partitions: 8
+                    connections: 4
+                """
+        ),
+        @Example(
+            title = "Export a table partitioned on a datetime field into a single gzipped file.",
+            full = true,
+            code = """
+                id: surrealdb_export_merged
+                namespace: company.team
+
+                tasks:
+                  - id: export
+                    type: io.kestra.plugin.surrealdb.Export
+                    host: localhost
+                    database: surreal_db
+                    namespace: surreal_namespace
+                    table: orders
+                    partitionField: created_at
+                    compression: GZIP
+                    merge: true
+                """
+        )
+    }
+)
+public class Export extends SurrealDBConnection implements RunnableTask<Export.Output> {
+    static final String LOWER_PARAMETER = "kestra_partition_lower";
+    static final String UPPER_PARAMETER = "kestra_partition_upper";
+    static final String TABLE_PARAMETER = "kestra_partition_table";
+
+    @Schema(
+        title = "Table to export"
+    )
+    @NotNull
+    @PluginProperty(group = "main")
+    private Property<String> table;
+
+    @Schema(
+        title = "Partition field",
+        description = "Field whose range is split into partitions: a number, a datetime, or `id` when the record ids have numeric keys. " +
+            "Rows without this field are not exported, and partitions are only balanced when its values are evenly spread."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<String> partitionField = Property.ofValue("id");
+
+    @Schema(
+        title = "Number of partitions"
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> partitions = Property.ofValue(4);
+
+    @Schema(
+        title = "Connections",
+        description = "Number of partitions exported at the same time, each over its own connection."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> connections = Property.ofValue(4);
+
+    @Schema(
+        title = "Rows per page",
+        description = "Each partition is read with keyset pagination on the record id, this number of rows at a time."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> pageSize = Property.ofValue(10_000);
+
+    @Schema(
+        title = "Stored file compression",
+        description = "Compression of the ION files, see the `Query` task."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Query.Compression> compression = Property.ofValue(Query.Compression.NONE);
+
+    @Schema(
+        title = "Merge partitions",
+        description = "When `true`, the partition files are also concatenated, in partition order, into the single file of `uri`."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Boolean> merge = Property.ofValue(false);
+
+    @Schema(
+        title = "Partition timeout",
+        description = "Maximum time for SurrealDB to answer each partition, all pages included, see the `Query` task. " +
+            "A partition running out of time fails the export instead of keeping it waiting. " +
+            "It also bounds each of the two queries reading the range of `partitionField`, which otherwise wait at most `connectionTimeout` seconds."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Duration> queryTimeout;
+
+    @Override
+    public Export.Output run(RunContext runContext) throws Exception {
+        Logger logger = runContext.logger();
+
+        String renderedTable = SurrealQL.identifier(runContext.render(table).as(String.class).orElseThrow());
+        String renderedField = runContext.render(partitionField).as(String.class).orElseThrow();
+        int partitionsValue = runContext.render(partitions).as(Integer.class).orElseThrow();
+        int connectionsValue = runContext.render(connections).as(Integer.class).orElseThrow();
+        Query.Compression compressionValue = runContext.render(compression).as(Query.Compression.class).orElseThrow();
+        if (partitionsValue <= 0 || connectionsValue <= 0) {
+            throw new IllegalArgumentException("`partitions` and `connections` must be positive");
+        }
+
+        Duration boundTimeout = runContext.render(queryTimeout).as(Duration.class).orElse(Duration.ofSeconds(getConnectionTimeout()));
+
+        long start = System.nanoTime();
+        List<Partition> ranges;
+        try (SurrealDBClient client = super.connect(runContext)) {
+            ranges = partitions(
+                bound(client, renderedTable, renderedField, "ASC", boundTimeout),
+                bound(client, renderedTable, renderedField, "DESC", boundTimeout),
+                renderedField,
+                partitionsValue
+            );
+        }
+
+        int pageSizeValue = runContext.render(pageSize).as(Integer.class).orElseThrow();
+        List<Callable<Query.Output>> exports = new ArrayList<>(ranges.size());
+        for (Partition range : ranges) {
+            Query partitionQuery = Query.builder()
+                .host(getHost())
+                .port(getPort())
+                .useTls(getUseTls())
+                .connectionTimeout(getConnectionTimeout())
+                .username(getUsername())
+                .password(getPassword())
+                .namespace(getNamespace())
+                .database(getDatabase())
+                .pooled(getPooled())
+                .maxPoolSize(getMaxPoolSize())
+                .poolIdleTimeout(getPoolIdleTimeout())
+                .query("SELECT * FROM " + renderedTable + (range.condition() == null ? "" : " WHERE " + range.condition()))
+                .parameters(Property.ofValue(range.parameters()))
+                .pagination(Property.ofValue(QueryInterface.Pagination.KEYSET))
+                .pageSize(Property.ofValue(pageSizeValue))
+                .fetchType(Property.ofValue(FetchType.STORE))
+                .compression(Property.ofValue(compressionValue))
+                .queryTimeout(queryTimeout)
+                .build();
+
+            // the partitions share this run context: Query reports their metrics and creates their files one at a time
+            exports.add(() -> partitionQuery.run(runContext));
+        }
+
+        List<URI> uris = new ArrayList<>(ranges.size());
+        long rowCount = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(connectionsValue, Thread.ofVirtual().name("surrealdb-export-", 0).factory());
+        try {
+            for (Future<Query.Output> export : executor.invokeAll(exports)) {
+                Query.Output output = await(export);
+                uris.add(output.getUri());
+                rowCount += output.getSize();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        URI merged = runContext.render(merge).as(Boolean.class).orElseThrow() ? merge(runContext, uris, compressionValue) : null;
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        runContext.metric(Counter.of("records", rowCount));
+        runContext.metric(Counter.of("partitions", ranges.size()));
+        runContext.metric(Timer.of("duration", duration));
+
+        logger.info("Exported {} rows in {} partitions over {} connections in {}", rowCount, ranges.size(), Math.min(connectionsValue, ranges.size()), duration);
+
+        return Output.builder()
+            .uris(uris)
+            .uri(merged)
+            .rowCount(rowCount)
+            .partitions(ranges.size())
+            .build();
+    }
+
+    private static Object bound(SurrealDBClient client, String table, String field, String order, Duration timeout) throws Exception {
+        String statement = "SELECT " + field + " FROM " + table + " WHERE " + field + " != NONE ORDER BY " + field + " " + order + " LIMIT 1";
+        CompletableFuture<List<QueryResult<Object>>> pending = client.queryAsync(statement, Map.of());
+        List<QueryResult<Object>> results;
+        try {
+            results = pending.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            pending.cancel(true);
+            // the answer may still arrive later, so the connection is not handed to anyone else
+            client.invalidate();
+            throw new TimeoutException("SurrealDB did not answer the range of `" + field + "` within " + timeout);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        return Query.getResultStream(results).findFirst().map(row -> row.get(field)).orElse(null);
+    }
+
+    /**
+     * Splits {@code [min, max]} in {@code count} ranges of equal width. The first range has no lower bound and the last
+     * one no upper bound, so rows written during the export outside of the initial bounds are still read once.
+     */
+    static List<Partition> partitions(Object min, Object max, String field, int count) {
+        if (min == null || max == null || count == 1) {
+            return List.of(new Partition(null, Map.of()));
+        }
+
+        Bounds bounds = Bounds.of(min, max, field);
+        List<Object> boundaries = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            Object boundary = bounds.at(BigDecimal.valueOf(i).divide(BigDecimal.valueOf(count), 10, RoundingMode.HALF_UP));
+            if (boundaries.isEmpty() || !boundaries.getLast().equals(boundary)) {
+                boundaries.add(boundary);
+            }
+        }
+
+        List<Partition> ranges = new ArrayList<>(boundaries.size() + 1);
+        for (int i = 0; i <= boundaries.size(); i++) {
+            Map<String, Object> parameters = new HashMap<>();
+            List<String> conditions = new ArrayList<>(2);
+            if (i > 0) {
+                conditions.add(field + " >= " + bounds.comparable(LOWER_PARAMETER));
+                parameters.put(LOWER_PARAMETER, boundaries.get(i - 1));
+            }
+            if (i < boundaries.size()) {
+                conditions.add(field + " < " + bounds.comparable(UPPER_PARAMETER));
+                parameters.put(UPPER_PARAMETER, boundaries.get(i));
+            }
+            if (bounds.table() != null) {
+                parameters.put(TABLE_PARAMETER, bounds.table());
+            }
+
+            ranges.add(new Partition(conditions.isEmpty() ? null : String.join(" AND ", conditions), parameters));
+        }
+
+        return ranges;
+    }
+
+    private static URI merge(RunContext runContext, List<URI> uris, Query.Compression compression) throws Exception {
+        // ION streams and gzip members can both be concatenated as they are
+        File merged = runContext.workingDir().createTempFile(compression.extension()).toFile();
+        try (OutputStream output = new FileOutputStream(merged)) {
+            for (URI uri : uris) {
+                try (InputStream input = runContext.storage().getFile(uri)) {
+                    input.transferTo(output);
+                }
+            }
+        }
+
+        return runContext.storage().putFile(merged);
+    }
+
+    private static Query.Output await(Future<Query.Output> export) throws Exception {
+        try {
+            return export.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    record Partition(String condition, Map<String, Object> parameters) {
+    }
+
+    /**
+     * Lowest and highest values of the partition field, as numbers to interpolate between.
+     */
+    private record Bounds(BigDecimal min, BigDecimal max, Kind kind, String table) {
+        enum Kind {
+            INTEGER,
+            DECIMAL,
+            DATETIME,
+            RECORD_ID
+        }
+
+        static Bounds of(Object min, Object max, String field) {
+            if (min instanceof Long && max instanceof Long) {
+                return new Bounds(BigDecimal.valueOf((Long) min), BigDecimal.valueOf((Long) max), Kind.INTEGER, null);
+            }
+
+            if (min instanceof Number && max instanceof Number) {
+                return new Bounds(new BigDecimal(min.toString()), new BigDecimal(max.toString()), Kind.DECIMAL, null);
+            }
+
+            if (min instanceof Instant minInstant && max instanceof Instant maxInstant) {
+                return new Bounds(epochNanos(minInstant), epochNanos(maxInstant), Kind.DATETIME, null);
+            }
+
+            if ("id".equals(field) && min instanceof String minId && max instanceof String maxId && minId.indexOf(':') > 0 && maxId.startsWith(minId.substring(0, minId.indexOf(':') + 1))) {
+                String table = minId.substring(0, minId.indexOf(':'));
+                try {
+                    return new Bounds(new BigDecimal(minId.substring(table.length() + 1)), new BigDecimal(maxId.substring(table.length() + 1)), Kind.RECORD_ID, table);
+                } catch (NumberFormatException e) {
+                    // not a numeric key, rejected below
+                }
+            }
+
+            throw new IllegalArgumentException("`partitionField` must be a number, a datetime, or `id` with numeric keys, got '" + min + "' to '" + max + "'");
+        }
+
+        Object at(BigDecimal fraction) {
+            BigDecimal value = min.add(max.subtract(min).multiply(fraction));
+            return switch (kind) {
+                case INTEGER, RECORD_ID -> value.setScale(0, RoundingMode.CEILING).longValueExact();
+                case DECIMAL -> value;
+                case DATETIME -> {
+                    BigDecimal[] seconds = value.setScale(0, RoundingMode.CEILING).divideAndRemainder(BigDecimal.valueOf(1_000_000_000));
+                    yield Instant.ofEpochSecond(seconds[0].longValueExact(), seconds[1].longValueExact()).toString();
+                }
+            };
+        }
+
+        String comparable(String parameter) {
+            return switch (kind) {
+                case INTEGER, DECIMAL -> "$" + parameter;
+                case DATETIME -> "<datetime> $" + parameter;
+                case RECORD_ID -> "type::thing($" + TABLE_PARAMETER + ", $" + parameter + ")";
+            };
+        }
+
+        private static BigDecimal epochNanos(Instant instant) {
+            return BigDecimal.valueOf(instant.getEpochSecond()).multiply(BigDecimal.valueOf(1_000_000_000)).add(BigDecimal.valueOf(instant.getNano()));
+        }
+    }
+
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(
+            title = "URIs of the partition files",
+            description = "One ION file per partition, in partition order."
+        )
+        private List<URI> uris;
+
+        @Schema(
+            title = "URI of the merged file",
+            description = "Populated only when `merge: true`."
+        )
+        private URI uri;
+
+        @Schema(
+            title = "Number of rows exported"
+        )
+        private Long rowCount;
+
+        @Schema(
+            title = "Number of partitions exported"
+        )
+        private Integer partitions;
+    }
+}
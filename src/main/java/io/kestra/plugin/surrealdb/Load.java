@@ -0,0 +1,418 @@
+package io.kestra.plugin.surrealdb;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.executions.metrics.Timer;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.serializers.FileSerde;
+import io.kestra.core.serializers.JacksonMapper;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+@SuperBuilder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@Schema(
+    title = "Bulk insert rows into a SurrealDB table",
+    description = "Reads an ION file from internal storage as a stream and inserts its rows in batches of `chunk` rows, spread over `connections` connections with up to `maxInFlight` batches pipelined on each. " +
+        "Failed batches are retried with an exponential backoff; the task fails once all batches are processed if any of them still could not be inserted."
+)
+@Plugin(
+    examples = {
+        @Example(
+            title = "Load the rows stored by a previous task into a SurrealDB table.",
+            full = true,
+            code = """
+                id: surrealdb_load
+                namespace: company.team
+
+                tasks:
+                  - id: extract
+                    type: io.kestra.plugin.core.http.Download
+                    uri: https://huggingface.co/datasets/kestra/datasets/raw/main/ion/products.ion
+
+                  - id: load
+                    type: io.kestra.plugin.surrealdb.Load
+                    host: localhost
+                    username: surreal_user
+                    password: "{{ secret('SURREALDB_PASSWORD') }}"
+                    database: surreal_db
+                    namespace: surreal_namespace
+                    from: "{{ outputs.extract.uri }}"
+                    table: products
+                    chunk: 5000
+                    maxInFlight: 8
+                    connections: 4
+                """
+        )
+    }
+)
+public class Load extends SurrealDBConnection implements RunnableTask<Load.Output>, AdaptiveBatchInterface, RequestTimeoutInterface {
+    static final String ROWS_PARAMETER = "kestra_rows";
+
+    @Schema(
+        title = "Source file URI",
+        description = "Internal storage URI of an ION file, one row per record."
+    )
+    @NotNull
+    @PluginProperty(internalStorageURI = true, group = "main")
+    private Property<String> from;
+
+    @Schema(
+        title = "Target table"
+    )
+    @NotNull
+    @PluginProperty(group = "main")
+    private Property<String> table;
+
+    @Schema(
+        title = "Rows per batch",
+        description = "Number of rows sent in each `INSERT` statement, or the initial number when `targetLatency` is set."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> chunk = Property.ofValue(1000);
+
+    @Schema(
+        title = "Batches in flight",
+        description = "Maximum number of batches sent on the connection before their results are received."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> maxInFlight = Property.ofValue(4);
+
+    @Schema(
+        title = "Retries per batch",
+        description = "Number of times a batch that lost its connection or got no answer within `requestTimeout` is sent again over a new connection, with an exponential backoff, before it is counted as failed. " +
+            "Statement errors are not retried. A batch left unanswered may still have been inserted, so rows without an `id` of their own may be inserted twice when it is retried."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> maxRetries = Property.ofValue(3);
+
+    @Schema(
+        title = "Connections",
+        description = "Number of connections the batches are spread over, each one encoding and sending its own batches. " +
+            "Throughput grows with it until the server or the worker cores are saturated."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> connections = Property.ofValue(1);
+
+    @Schema(
+        title = "Ordered load",
+        description = "When `true`, each connection sends its batches one after the other in file order, and the load stops at the first batch that still fails after its retries. " +
+            "Batches are dealt round robin over the connections, so the order is only kept within each connection; set `connections` to 1 for the rows to be inserted in file order. " +
+            "When `false`, batches are pipelined and the load goes on after a failed batch, failing once all batches are processed."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Boolean> ordered = Property.ofValue(false);
+
+    private Property<Duration> targetLatency;
+
+    @Builder.Default
+    private Property<Integer> maxChunk = Property.ofValue(10_000);
+
+    @Builder.Default
+    private Property<Duration> requestTimeout = Property.ofValue(Duration.ofMinutes(5));
+
+    @Override
+    public Load.Output run(RunContext runContext) throws Exception {
+        Logger logger = runContext.logger();
+
+        URI fromUri = URI.create(runContext.render(from).as(String.class).orElseThrow());
+        String statement = "INSERT INTO " + SurrealQL.identifier(runContext.render(table).as(String.class).orElseThrow()) + " $" + ROWS_PARAMETER;
+        AdaptiveBatch batchSize = AdaptiveBatch.of(runContext, runContext.render(chunk).as(Integer.class).orElseThrow(), this);
+        int maxInFlightValue = runContext.render(maxInFlight).as(Integer.class).orElseThrow();
+        int maxRetriesValue = runContext.render(maxRetries).as(Integer.class).orElseThrow();
+        int connectionsValue = runContext.render(connections).as(Integer.class).orElseThrow();
+        boolean orderedValue = runContext.render(ordered).as(Boolean.class).orElseThrow();
+        Duration requestTimeoutValue = runContext.render(requestTimeout).as(Duration.class).orElseThrow();
+
+        AtomicInteger batches = new AtomicInteger();
+        AtomicInteger failedBatches = new AtomicInteger();
+        AtomicInteger retries = new AtomicInteger();
+        AtomicInteger reconnects = new AtomicInteger();
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(connectionsValue, Thread.ofVirtual().name("surrealdb-load-", 0).factory());
+        Scheduler scheduler = Schedulers.fromExecutorService(executor);
+        List<Shard> shards = new ArrayList<>(connectionsValue);
+
+        long rowCount;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(runContext.storage().getFile(fromUri)), FileSerde.BUFFER_SIZE)) {
+            for (int i = 0; i < connectionsValue; i++) {
+                shards.add(new Shard(() -> super.connectPipelined(runContext), reconnects));
+            }
+
+            // small queues keep the reader a few batches ahead of the network, which bounds memory and lets a new
+            // adaptive batch size apply to the next batches rather than to hundreds of batches already buffered
+            rowCount = batchSize.batches(FileSerde.readAll(reader))
+                .index()
+                .groupBy(indexed -> (int) (indexed.getT1() % connectionsValue), connectionsValue * maxInFlightValue)
+                .flatMap(
+                    shardBatches -> {
+                        Shard shard = shards.get(shardBatches.key());
+                        Function<Tuple2<Long, List<Object>>, Mono<Long>> send = indexed -> {
+                            batches.incrementAndGet();
+                            Mono<Long> inserted = insert(shard, statement, indexed.getT2(), batchSize, requestTimeoutValue)
+                                .retryWhen(AdaptiveBatch.backoff(maxRetriesValue).scheduler(scheduler)
+                                    .filter(throwable -> isTransient(throwable, shard))
+                                    .doBeforeRetry(signal -> retries.incrementAndGet()));
+
+                            if (orderedValue) {
+                                return inserted;
+                            }
+
+                            return inserted.onErrorResume(throwable -> {
+                                failedBatches.incrementAndGet();
+                                logger.warn("Batch {} of {} rows could not be inserted", indexed.getT1(), indexed.getT2().size(), unwrap(throwable));
+                                return Mono.just(0L);
+                            });
+                        };
+
+                        // serializing and sending happen on the shard thread, so that shards encode their batches in parallel
+                        Flux<Tuple2<Long, List<Object>>> onShard = shardBatches.publishOn(scheduler, maxInFlightValue);
+                        return orderedValue ? onShard.concatMap(send) : onShard.flatMap(send, maxInFlightValue);
+                    },
+                    connectionsValue
+                )
+                .reduce(0L, Long::sum)
+                .blockOptional()
+                .orElse(0L);
+        } catch (RuntimeException e) {
+            Throwable cause = unwrap(Exceptions.unwrap(e));
+            throw cause instanceof Exception exception ? exception : e;
+        } finally {
+            shards.forEach(Shard::close);
+            scheduler.dispose();
+            executor.shutdownNow();
+        }
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        double rowsPerSecond = duration.isZero() ? 0 : rowCount * 1_000_000_000d / duration.toNanos();
+
+        runContext.metric(Counter.of("records", rowCount));
+        runContext.metric(Counter.of("batches", batches.get()));
+        runContext.metric(Counter.of("batches.failed", failedBatches.get()));
+        runContext.metric(Counter.of("retries", retries.get()));
+        runContext.metric(Counter.of("reconnects", reconnects.get()));
+        runContext.metric(Timer.of("duration", duration));
+        batchSize.report(runContext);
+
+        logger.info("Inserted {} rows in {} batches over {} connections ({} rows/s)", rowCount, batches.get(), connectionsValue, Math.round(rowsPerSecond));
+
+        if (failedBatches.get() > 0) {
+            throw new IllegalStateException(failedBatches.get() + " of " + batches.get() + " batches could not be inserted, see the warnings logged for each of them");
+        }
+
+        return Output.builder()
+            .rowCount(rowCount)
+            .batches(batches.get())
+            .retries(retries.get())
+            .rowsPerSecond(rowsPerSecond)
+            .batchSize(batchSize.size())
+            .smallestBatchSize(batchSize.smallest())
+            .largestBatchSize(batchSize.largest())
+            .build();
+    }
+
+    /**
+     * Serializes the batch once and sends it on each subscription, so that a retry sends the same payload again,
+     * on a new connection if the shard lost its own or got no answer on it.
+     */
+    private static Mono<Long> insert(Shard shard, String statement, List<Object> batch, AdaptiveBatch batchSize, Duration timeout) {
+        String params;
+        try {
+            params = JacksonMapper.ofJson().writeValueAsString(List.of(statement, Map.of(ROWS_PARAMETER, batch)));
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            SurrealDBRpcClient client = shard.client();
+            return Mono.fromFuture(() -> client.callAsyncJson("query", params))
+                .timeout(timeout, Mono.error(() -> new TimeoutException("SurrealDB did not answer within the request timeout of " + timeout)))
+                .doOnError(TimeoutException.class, throwable -> shard.invalidate(client))
+                .map(result -> {
+                    checkStatements(result);
+                    Duration serverTime = serverTime(result);
+                    batchSize.onSuccess(serverTime != null ? serverTime : Duration.ofNanos(System.nanoTime() - start));
+                    return (long) batch.size();
+                })
+                .doOnError(batchSize::onFailure);
+        });
+    }
+
+    /**
+     * Whether a failed insert may go through when sent again: statement errors would fail the same way, while a batch
+     * left unanswered or sent over a connection that went away is sent again over a new connection.
+     */
+    private static boolean isTransient(Throwable throwable, Shard shard) {
+        return throwable instanceof TimeoutException || throwable instanceof IOException || !shard.isOpen();
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return Exceptions.isRetryExhausted(throwable) ? throwable.getCause() : throwable;
+    }
+
+    private static Duration serverTime(JsonElement result) {
+        if (result == null || !result.isJsonArray()) {
+            return null;
+        }
+
+        Duration total = Duration.ZERO;
+        for (JsonElement element : result.getAsJsonArray()) {
+            JsonElement time = element.getAsJsonObject().get("time");
+            Duration statementTime = time == null || !time.isJsonPrimitive() ? null : QueryMetrics.parseDuration(time.getAsString());
+            if (statementTime == null) {
+                return null;
+            }
+            total = total.plus(statementTime);
+        }
+        return total;
+    }
+
+    private static void checkStatements(JsonElement result) {
+        if (result == null || !result.isJsonArray()) {
+            return;
+        }
+
+        for (JsonElement element : result.getAsJsonArray()) {
+            JsonObject statement = element.getAsJsonObject();
+            if (statement.has("status") && !"OK".equals(statement.get("status").getAsString())) {
+                JsonElement detail = statement.has("result") ? statement.get("result") : statement.get("detail");
+                throw new IllegalStateException("Insert failed: " + (detail == null ? statement : detail.isJsonPrimitive() ? detail.getAsString() : detail));
+            }
+        }
+    }
+
+    /**
+     * One connection of the load, opened again when it is lost so that the next attempt of a batch can go through.
+     */
+    private static final class Shard implements AutoCloseable {
+        private final Callable<SurrealDBRpcClient> connector;
+        private final AtomicInteger reconnects;
+        private SurrealDBRpcClient client;
+
+        Shard(Callable<SurrealDBRpcClient> connector, AtomicInteger reconnects) throws Exception {
+            this.connector = connector;
+            this.reconnects = reconnects;
+            this.client = connector.call();
+        }
+
+        synchronized SurrealDBRpcClient client() {
+            if (!client.isOpen()) {
+                client.close();
+                try {
+                    client = connector.call();
+                } catch (Exception e) {
+                    throw Exceptions.propagate(e);
+                }
+                reconnects.incrementAndGet();
+            }
+
+            return client;
+        }
+
+        synchronized boolean isOpen() {
+            return client.isOpen();
+        }
+
+        /**
+         * Closes a connection a request got no answer on, unless already replaced, so the next attempt opens a new one.
+         */
+        synchronized void invalidate(SurrealDBRpcClient unanswered) {
+            if (client == unanswered) {
+                client.close();
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            client.close();
+        }
+    }
+
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(
+            title = "Number of rows inserted"
+        )
+        private Long rowCount;
+
+        @Schema(
+            title = "Number of batches sent"
+        )
+        private Integer batches;
+
+        @Schema(
+            title = "Number of batch retries"
+        )
+        private Integer retries;
+
+        @Schema(
+            title = "Insert throughput in rows per second"
+        )
+        private Double rowsPerSecond;
+
+        @Schema(
+            title = "Batch size at the end of the run",
+            description = "Differs from `chunk` only when `targetLatency` is set."
+        )
+        private Integer batchSize;
+
+        @Schema(
+            title = "Smallest batch size used"
+        )
+        private Integer smallestBatchSize;
+
+        @Schema(
+            title = "Largest batch size used"
+        )
+        private Integer largestBatchSize;
+    }
+}
@@ -0,0 +1,354 @@
+package io.kestra.plugin.surrealdb;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+
+import com.surrealdb.driver.model.QueryResult;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.executions.metrics.Timer;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.serializers.FileSerde;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@SuperBuilder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@Schema(
+    title = "Fetch SurrealDB records by id",
+    description = "Reads the records whose ids are listed in `ids` or in the ION file `from`, and stores them to internal storage, " +
+        "or with `joinField`, stores each row of `from` with its record. " +
+        "Ids are read `chunk` at a time, deduplicated within that window and fetched with `SELECT * FROM <id>, <id>...`, with up to `maxInFlight` requests pipelined on a single connection; " +
+        "only `chunk` × `maxInFlight` rows are held in memory, and an id repeated in another window is fetched again. " +
+        "Records are stored in the order of the first occurrence of their id in each window; ids without a record are counted in `missing`."
+)
+@Plugin(
+    examples = {
+        @Example(
+            title = "Enrich the orders stored by a previous task with their customer record.",
+            full = true,
+            code = """
+                id: surrealdb_lookup
+                namespace: company.team
+
+                tasks:
+                  - id: orders
+                    type: io.kestra.plugin.surrealdb.Query
+                    host: localhost
+                    database: surreal_db
+                    namespace: surreal_namespace
+                    query: SELECT * FROM order WHERE status = 'new'
+
+                  - id: customers
+                    type: io.kestra.plugin.surrealdb.Lookup
+                    host: localhost
+                    database: surreal_db
+                    namespace: surreal_namespace
+                    from: "{{ outputs.orders.uri }}"
+                    idField: customer
+                    joinField: customer
+                    chunk: 1000
+                """
+        ),
+        @Example(
+            title = "Fetch a few records by id.",
+            full = true,
+            code = """
+                id: surrealdb_lookup_ids
+                namespace: company.team
+
+                tasks:
+                  - id: lookup
+                    type: io.kestra.plugin.surrealdb.Lookup
+                    host: localhost
+                    database: surreal_db
+                    namespace: surreal_namespace
+                    ids:
+                      - person:tobie
+                      - person:jaime
+                """
+        )
+    }
+)
+public class Lookup extends SurrealDBConnection implements RunnableTask<Lookup.Output>, RequestTimeoutInterface {
+    @Schema(
+        title = "Record ids",
+        description = "Record ids such as `person:tobie`, used when `from` is not set."
+    )
+    @PluginProperty(group = "main")
+    private Property<List<String>> ids;
+
+    @Schema(
+        title = "Source file URI",
+        description = "Internal storage URI of an ION file whose records are either record ids, or rows holding a record id in `idField`."
+    )
+    @PluginProperty(internalStorageURI = true, group = "main")
+    private Property<String> from;
+
+    @Schema(
+        title = "Id field",
+        description = "Field holding the record id when the records of `from` are rows; rows without it are skipped, or stored as they are with `joinField`."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "main")
+    private Property<String> idField = Property.ofValue("id");
+
+    @Schema(
+        title = "Join field",
+        description = "When set, each row of `from` is stored, in order, with the record of its `idField` in this field, such as `FETCH` does. " +
+            "Use `idField` itself to replace the id with its record. Rows whose record is missing are stored unchanged. " +
+            "When not set, only the records found are stored."
+    )
+    @PluginProperty(group = "main")
+    private Property<String> joinField;
+
+    @Schema(
+        title = "Ids per request",
+        description = "Number of ids or rows read per request, and the window within which ids are deduplicated."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> chunk = Property.ofValue(1000);
+
+    @Schema(
+        title = "Requests in flight",
+        description = "Maximum number of requests sent on the connection before their results are received."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> maxInFlight = Property.ofValue(4);
+
+    @Builder.Default
+    private Property<Duration> requestTimeout = Property.ofValue(Duration.ofMinutes(5));
+
+    @Override
+    public Lookup.Output run(RunContext runContext) throws Exception {
+        Logger logger = runContext.logger();
+
+        int chunkValue = runContext.render(chunk).as(Integer.class).orElseThrow();
+        int maxInFlightValue = runContext.render(maxInFlight).as(Integer.class).orElseThrow();
+        String fromValue = runContext.render(from).as(String.class).orElse(null);
+        String idFieldValue = runContext.render(idField).as(String.class).orElseThrow();
+        String joinFieldValue = runContext.render(joinField).as(String.class).orElse(null);
+        Duration requestTimeoutValue = runContext.render(requestTimeout).as(Duration.class).orElseThrow();
+
+        long start = System.nanoTime();
+        AtomicLong requested = new AtomicLong();
+        AtomicLong found = new AtomicLong();
+        AtomicInteger distinctIds = new AtomicInteger();
+        AtomicInteger requests = new AtomicInteger();
+
+        File tempFile = runContext.workingDir().createTempFile(".ion").toFile();
+        long rowCount;
+        try (
+            SurrealDBClient client = super.connect(runContext);
+            BufferedReader reader = fromValue == null ? null : new BufferedReader(new InputStreamReader(runContext.storage().getFile(URI.create(fromValue))), FileSerde.BUFFER_SIZE);
+            Writer output = new BufferedWriter(new FileWriter(tempFile, StandardCharsets.UTF_8), FileSerde.BUFFER_SIZE)
+        ) {
+            Flux<Object> input;
+            if (reader != null) {
+                input = FileSerde.readAll(reader);
+            } else if (ids != null) {
+                input = Flux.fromIterable(runContext.render(ids).asList(String.class));
+            } else {
+                throw new IllegalArgumentException("Either `ids` or `from` is required");
+            }
+
+            Flux<Object> rows = input
+                .buffer(chunkValue)
+                .flatMapSequential(
+                    window -> {
+                        // keyed by the unquoted id, to match the ids of the records returned
+                        Map<String, String> windowIds = new LinkedHashMap<>();
+                        for (Object record : window) {
+                            String id = id(record, idFieldValue);
+                            if (id != null) {
+                                requested.incrementAndGet();
+                                windowIds.putIfAbsent(recordKey(id), id);
+                            }
+                        }
+                        if (windowIds.isEmpty()) {
+                            return joinFieldValue == null ? Flux.empty() : Flux.fromIterable(window);
+                        }
+
+                        distinctIds.addAndGet(windowIds.size());
+                        requests.incrementAndGet();
+                        return Mono.fromFuture(() -> client.queryAsync(statement(List.copyOf(windowIds.values())), Map.of()))
+                            .timeout(requestTimeoutValue, Mono.error(() -> new TimeoutException("SurrealDB did not answer within the request timeout of " + requestTimeoutValue)))
+                            .flatMapMany(results -> {
+                                Map<String, Map<String, Object>> byId = records(results);
+                                found.addAndGet(byId.size());
+                                return Flux.fromIterable(joinFieldValue == null ? List.<Object>copyOf(byId.values()) : join(window, byId, idFieldValue, joinFieldValue));
+                            });
+                    },
+                    maxInFlightValue
+                );
+
+            try {
+                rowCount = FileSerde.writeAll(output, rows).block();
+            } catch (RuntimeException e) {
+                client.invalidate();
+                Throwable cause = Exceptions.unwrap(e);
+                throw cause instanceof Exception exception ? exception : e;
+            }
+        }
+
+        URI uri = runContext.storage().putFile(tempFile);
+        long missing = Math.max(0, distinctIds.get() - found.get());
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        runContext.metric(Counter.of("ids", requested.get()));
+        runContext.metric(Counter.of("ids.distinct", distinctIds.get()));
+        runContext.metric(Counter.of("records", found.get()));
+        runContext.metric(Counter.of("requests", requests.get()));
+        runContext.metric(Timer.of("duration", duration));
+
+        logger.info("Fetched {} records for {} distinct ids in {} requests", found.get(), distinctIds.get(), requests.get());
+
+        return Output.builder()
+            .uri(uri)
+            .size(rowCount)
+            .distinctIds(distinctIds.get())
+            .missing(missing)
+            .build();
+    }
+
+    /**
+     * Builds {@code SELECT * FROM a:1, a:⟨b⟩}: ids are written as literals, with their table and key quoted, since a
+     * string parameter would be read as a string and not as a record id.
+     */
+    static String statement(List<String> ids) {
+        StringBuilder statement = new StringBuilder("SELECT * FROM ");
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                statement.append(", ");
+            }
+            statement.append(recordId(ids.get(i)));
+        }
+        return statement.toString();
+    }
+
+    private static String recordId(String id) {
+        int separator = id.indexOf(':');
+        if (separator <= 0 || separator == id.length() - 1) {
+            throw new IllegalArgumentException("Invalid record id '" + id + "', expected `table:key`");
+        }
+
+        String rawKey = id.substring(separator + 1);
+        String key = SurrealQL.unquoteKey(rawKey);
+        return SurrealQL.identifier(id.substring(0, separator)) + ":" + (SurrealQL.isNumericKey(rawKey) ? key : "⟨" + key.replace("⟩", "\\⟩") + "⟩");
+    }
+
+    /**
+     * Record id without the quotes of its table and key, as ids asked for and ids returned may be quoted differently.
+     */
+    static String recordKey(String id) {
+        int separator = id.indexOf(':');
+        if (separator < 0) {
+            return id;
+        }
+        return SurrealQL.unquoteKey(id.substring(0, separator)) + ":" + SurrealQL.unquoteKey(id.substring(separator + 1));
+    }
+
+    private static String id(Object record, String idField) {
+        if (record instanceof Map<?, ?> row) {
+            return row.get(idField) == null ? null : String.valueOf(row.get(idField));
+        }
+        return String.valueOf(record);
+    }
+
+    /**
+     * Records returned for a window, by {@link #recordKey(String)}, in the order of the ids asked for.
+     */
+    private static Map<String, Map<String, Object>> records(List<QueryResult<Object>> results) {
+        for (QueryResult<Object> result : results) {
+            if (result.getStatus() != null && !"OK".equals(result.getStatus())) {
+                throw new IllegalStateException("Lookup failed with status " + result.getStatus());
+            }
+        }
+
+        Map<String, Map<String, Object>> byId = new LinkedHashMap<>();
+        Query.getResultStream(results)
+            .filter(record -> record.get("id") != null)
+            .forEach(record -> byId.put(recordKey(String.valueOf(record.get("id"))), record));
+        return byId;
+    }
+
+    /**
+     * Rows of the window, each one with its record in {@code joinField}, or unchanged when it has none.
+     */
+    static List<Object> join(List<Object> window, Map<String, Map<String, Object>> byId, String idField, String joinField) {
+        List<Object> joined = new ArrayList<>(window.size());
+        for (Object record : window) {
+            String id = id(record, idField);
+            Map<String, Object> found = id == null ? null : byId.get(recordKey(id));
+            if (found == null || !(record instanceof Map<?, ?> row)) {
+                joined.add(found == null ? record : found);
+                continue;
+            }
+
+            Map<Object, Object> enriched = new LinkedHashMap<>(row);
+            enriched.put(joinField, found);
+            joined.add(enriched);
+        }
+        return joined;
+    }
+
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(
+            title = "URI of the stored records"
+        )
+        private URI uri;
+
+        @Schema(
+            title = "Number of rows stored",
+            description = "Records found, or rows of `from` with `joinField`."
+        )
+        private Long size;
+
+        @Schema(
+            title = "Number of ids looked up, after deduplication within each window of `chunk` ids"
+        )
+        private Integer distinctIds;
+
+        @Schema(
+            title = "Number of distinct ids without a record"
+        )
+        private Long missing;
+    }
+}
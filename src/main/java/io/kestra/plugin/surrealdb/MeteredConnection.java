@@ -0,0 +1,56 @@
+package io.kestra.plugin.surrealdb;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.surrealdb.connection.SurrealWebSocketConnection;
+
+/**
+ * Driver connection counting what it receives, and the time spent decoding it on the socket reader thread.
+ * <p>
+ * The driver decodes each response inside {@link #onMessage(String)}, so timing that call gives the decode time
+ * without touching the driver. Counters are cumulative over the life of the socket: callers take a
+ * {@link #traffic()} snapshot before and after their requests, which also works for pooled connections.
+ */
+final class MeteredConnection extends SurrealWebSocketConnection {
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private final AtomicLong decodeNanos = new AtomicLong();
+
+    MeteredConnection(String host, int port, boolean useTls) {
+        super(host, port, useTls);
+    }
+
+    @Override
+    public void onMessage(String message) {
+        receivedBytes.addAndGet(utf8Length(message));
+
+        long start = System.nanoTime();
+        try {
+            super.onMessage(message);
+        } finally {
+            decodeNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    Traffic traffic() {
+        return new Traffic(receivedBytes.get(), Duration.ofNanos(decodeNanos.get()));
+    }
+
+    private static long utf8Length(String message) {
+        long length = message.length();
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c >= 0x80) {
+                // 2 bytes up to U+07FF, 3 bytes for the rest of the BMP, 4 bytes for a surrogate pair (2 chars)
+                length += c < 0x800 ? 1 : Character.isSurrogate(c) ? 1 : 2;
+            }
+        }
+        return length;
+    }
+
+    record Traffic(long receivedBytes, Duration decodeDuration) {
+        Traffic since(Traffic before) {
+            return new Traffic(receivedBytes - before.receivedBytes, decodeDuration.minus(before.decodeDuration));
+        }
+    }
+}
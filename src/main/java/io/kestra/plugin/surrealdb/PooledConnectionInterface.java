@@ -0,0 +1,34 @@
+package io.kestra.plugin.surrealdb;
+
+import java.time.Duration;
+
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.property.Property;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public interface PooledConnectionInterface {
+
+    @Schema(
+        title = "Reuse pooled connections",
+        description = "Borrow an authenticated connection from a worker-wide pool instead of opening, signing in and selecting the database on every run; default is `false`. " +
+            "Connections are shared by runs with the same endpoint, credentials, namespace and database, so avoid session variables set with `LET` when enabled."
+    )
+    @PluginProperty(group = "advanced")
+    Property<Boolean> getPooled();
+
+    @Schema(
+        title = "Maximum pooled connections",
+        description = "Maximum number of connections opened for the same endpoint, credentials, namespace and database when `pooled` is enabled; default is 4. " +
+            "Runs wait up to `connectionTimeout` for a connection to be released once the limit is reached."
+    )
+    @PluginProperty(group = "advanced")
+    Property<Integer> getMaxPoolSize();
+
+    @Schema(
+        title = "Pooled connection idle timeout",
+        description = "Time after which an unused pooled connection is closed; default is 5 minutes."
+    )
+    @PluginProperty(group = "advanced")
+    Property<Duration> getPoolIdleTimeout();
+}
@@ -2,22 +2,35 @@ package io.kestra.plugin.surrealdb;
 
 import java.io.*;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 import java.util.stream.Stream;
 
-import com.surrealdb.driver.SyncSurrealDriver;
 import com.surrealdb.driver.model.QueryResult;
 
 import io.kestra.core.models.annotations.Example;
 import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.executions.metrics.Timer;
 import io.kestra.core.models.property.Property;
 import io.kestra.core.models.tasks.RunnableTask;
 import io.kestra.core.models.tasks.common.FetchType;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.serializers.FileSerde;
+import io.kestra.core.serializers.JacksonMapper;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
@@ -58,6 +71,27 @@ import io.kestra.core.models.annotations.PluginProperty;
                     query: SELECT * FROM SURREAL_TABLE
                     fetchType: STORE
                 """
+        ),
+        @Example(
+            title = "Export a large table to internal storage page by page, resuming after the last record id of each page.",
+            full = true,
+            code = """
+                id: surrealdb_export
+                namespace: company.team
+
+                tasks:
+                  - id: export
+                    type: io.kestra.plugin.surrealdb.Query
+                    host: localhost
+                    username: surreal_user
+                    password: "{{ secret('SURREALDB_PASSWORD') }}"
+                    database: surreal_db
+                    namespace: surreal_namespace
+                    query: SELECT * FROM SURREAL_TABLE WHERE active = true
+                    fetchType: STORE
+                    pagination: KEYSET
+                    pageSize: 5000
+                """
         )
     }
 )
@@ -70,65 +104,398 @@ public class Query extends SurrealDBConnection implements RunnableTask<Query.Out
 
     @Builder.Default
     @PluginProperty(group = "main")
-    protected Property<Map<String, String>> parameters = Property.ofValue(new HashMap<>());
+    protected Property<Map<String, Object>> parameters = Property.ofValue(new HashMap<>());
 
     @NotBlank
     @PluginProperty(group = "main")
     protected String query;
 
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    protected Property<Pagination> pagination = Property.ofValue(Pagination.NONE);
+
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    protected Property<Integer> pageSize = Property.ofValue(10_000);
+
+    @Schema(
+        title = "Stored file compression",
+        description = "Compression of the ION file written with `fetchType: STORE`. `GZIP` files are several times smaller for wide documents and end with `.ion.gz`; " +
+            "tasks reading them must decompress them first. For columnar formats, convert the stored ION file with the serdes plugin, such as `IonToParquet`."
+    )
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    protected Property<Compression> compression = Property.ofValue(Compression.NONE);
+
+    @Schema(
+        title = "Keep results per statement",
+        description = "When `true`, each statement of a multi-statement query gets its own entry in `statements`, with its status, server time, size and rows, row or storage URI depending on `fetchType`, " +
+            "instead of all rows being merged into `rows`, `row` or `uri`. Not supported with `pagination`."
+    )
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    protected Property<Boolean> perStatement = Property.ofValue(false);
+
+    @Schema(
+        title = "Query timeout",
+        description = "Maximum time for SurrealDB to answer, all pages included. A single `SELECT` without its own `TIMEOUT` clause, and every page of a paginated query, are also sent with a `TIMEOUT` clause so the server stops working on them. " +
+            "When the time is up, the task fails and the connection is closed, or discarded when pooled, so that no response can arrive on it later."
+    )
+    @PluginProperty(group = "execution")
+    protected Property<Duration> queryTimeout;
+
+    @Schema(
+        title = "Cache duration",
+        description = "When set, the rows of a read-only query (`SELECT` or `INFO` statements only) are cached for this duration, keyed on the endpoint, user, namespace, database, rendered query and parameters. " +
+            "Runs within that duration read the cached rows instead of querying SurrealDB, and `cacheHit` tells which one happened. " +
+            "Queries that may write are always sent to SurrealDB. Not supported with `pagination` or `perStatement`."
+    )
+    @PluginProperty(group = "advanced")
+    protected Property<Duration> cacheTtl;
+
+    @Schema(
+        title = "Cache store",
+        description = "`MEMORY` keeps the rows in the worker running the task, up to 64 MiB for all queries together, least recently used first out. " +
+            "`KV` keeps them in the KV store of the flow namespace, so they are shared by all workers."
+    )
+    @Builder.Default
+    @PluginProperty(group = "advanced")
+    protected Property<CacheStore> cacheStore = Property.ofValue(CacheStore.MEMORY);
+
+    @Schema(
+        title = "Largest cached result",
+        description = "Results larger than this number of bytes once serialized to ION are not cached; rows are serialized as they are read and dropped as soon as they exceed it."
+    )
+    @Builder.Default
+    @PluginProperty(group = "advanced")
+    protected Property<Long> cacheMaxBytes = Property.ofValue(1024L * 1024);
+
     @Override
     public Query.Output run(RunContext runContext) throws Exception {
-        SyncSurrealDriver driver = super.connect(runContext);
+        return run(runContext, row -> {});
+    }
+
+    /**
+     * Runs the query, handing every returned row to {@code rowListener} whatever the {@code fetchType}.
+     */
+    Query.Output run(RunContext runContext, Consumer<Map<String, Object>> rowListener) throws Exception {
+        Duration cacheTtlValue = runContext.render(cacheTtl).as(Duration.class).orElse(null);
+        String cacheKey = cacheTtlValue != null ? cacheKey(runContext) : null;
+        if (cacheKey == null) {
+            return execute(runContext, rowListener);
+        }
+
+        CacheStore cacheStoreValue = runContext.render(cacheStore).as(CacheStore.class).orElse(CacheStore.MEMORY);
+        Optional<List<Map<String, Object>>> cached = ResultCache.getInstance().get(runContext, cacheStoreValue, cacheKey);
+        QueryMetrics.report(runContext, Counter.of(cached.isPresent() ? "cache.hit" : "cache.miss", 1));
+        if (cached.isPresent()) {
+            cached.get().forEach(rowListener);
+            return cachedOutput(runContext, cached.get());
+        }
+
+        long maxBytes = runContext.render(cacheMaxBytes).as(Long.class).orElseThrow();
+        ResultCache.Collector rows = new ResultCache.Collector(maxBytes);
+        Query.Output output = execute(runContext, rowListener.andThen(rows));
+
+        if (!ResultCache.getInstance().put(runContext, cacheStoreValue, cacheKey, rows, cacheTtlValue)) {
+            runContext.logger().debug("Result of {} rows not cached, larger than {} bytes", output.getSize(), maxBytes);
+        }
 
-        String renderedQuery = runContext.render(query);
+        return output.toBuilder().cacheHit(false).build();
+    }
+
+    private Query.Output execute(RunContext runContext, Consumer<Map<String, Object>> rowListener) throws Exception {
+        try (SurrealDBClient client = super.connect(runContext)) {
+            MeteredConnection.Traffic before = client.connection().traffic();
+            try {
+                return run(runContext, client, rowListener);
+            } catch (Exception e) {
+                client.invalidate();
+                throw e;
+            } finally {
+                MeteredConnection.Traffic traffic = client.connection().traffic().since(before);
+                QueryMetrics.report(runContext, Counter.of("received.bytes", traffic.receivedBytes()));
+                QueryMetrics.report(runContext, Timer.of("decode.duration", traffic.decodeDuration()));
+            }
+        }
+    }
+
+    private Query.Output run(RunContext runContext, SurrealDBClient client, Consumer<Map<String, Object>> rowListener) throws Exception {
+        TemplateCache.Rendered rendered = TemplateCache.getInstance().render(runContext, query, parameters);
+        String renderedQuery = rendered.query();
+        Map<String, Object> parametersValue = rendered.parameters();
+        Deadline deadline = new Deadline(runContext.render(queryTimeout).as(Duration.class).orElse(null), System.nanoTime());
 
-        Map<String, String> parametersValue = runContext.render(parameters).asMap(String.class, String.class).isEmpty() ? new HashMap<>()
-            : runContext.render(parameters).asMap(String.class, String.class);
-        List<QueryResult<Object>> results = driver.query(renderedQuery, parametersValue, Object.class);
+        Pagination paginationValue = runContext.render(pagination).as(Pagination.class).orElse(Pagination.NONE);
+        boolean perStatementValue = runContext.render(perStatement).as(Boolean.class).orElse(false);
+        if (perStatementValue && paginationValue != Pagination.NONE) {
+            throw new IllegalArgumentException("`perStatement` is not supported with `pagination`");
+        }
+
+        if (paginationValue != Pagination.NONE) {
+            QueryPager pager = new QueryPager(renderedQuery, parametersValue, paginationValue, runContext.render(pageSize).as(Integer.class).orElseThrow());
+            return runPaginated(runContext, client, pager, runContext.render(fetchType).as(FetchType.class).orElseThrow(), rowListener, deadline);
+        }
+
+        List<QueryResult<Object>> results = deadline.await(client.queryAsync(deadline.withTimeout(renderedQuery), parametersValue));
+        QueryMetrics.statements(runContext, results);
 
         Query.Output.OutputBuilder outputBuilder = Output.builder().size(
             results.stream()
                 .mapToLong(result -> result.getResult() != null ? (long) result.getResult().size() : (long) 0)
                 .sum()
         );
+        getResultStream(results).forEach(rowListener);
 
-        super.disconnect();
+        FetchType fetchTypeValue = runContext.render(fetchType).as(FetchType.class).orElseThrow();
+        if (perStatementValue) {
+            return outputBuilder.statements(statementOutputs(runContext, results, fetchTypeValue)).build();
+        }
 
-        return (switch (runContext.render(fetchType).as(FetchType.class).orElseThrow()) {
+        return (switch (fetchTypeValue) {
             case FETCH -> outputBuilder.rows(getResultStream(results).toList());
             case FETCH_ONE -> outputBuilder.row(getResultStream(results).findFirst().orElse(null));
-            case STORE -> outputBuilder.uri(getTempFile(runContext, getResultStream(results).toList()));
+            case STORE -> outputBuilder.uri(getTempFile(runContext, results));
+            default -> outputBuilder;
+        }).build();
+    }
+
+    /**
+     * Identifies the rows the query returns, or returns {@code null} when the query may write and must not be cached.
+     */
+    private String cacheKey(RunContext runContext) throws Exception {
+        if (runContext.render(pagination).as(Pagination.class).orElse(Pagination.NONE) != Pagination.NONE) {
+            throw new IllegalArgumentException("`cacheTtl` is not supported with `pagination`");
+        }
+        if (runContext.render(perStatement).as(Boolean.class).orElse(false)) {
+            throw new IllegalArgumentException("`cacheTtl` is not supported with `perStatement`");
+        }
+
+        TemplateCache.Rendered rendered = TemplateCache.getInstance().render(runContext, query, parameters);
+        String renderedQuery = rendered.query();
+        if (!SurrealQL.isReadOnly(renderedQuery)) {
+            runContext.logger().warn("Query is not cached as it may write: only `SELECT` and `INFO` statements are cached");
+            return null;
+        }
+
+        Map<String, Object> parametersValue = rendered.parameters();
+        return ResultCache.key(
+            runContext.render(getHost()),
+            getPort(),
+            getUsername() == null ? null : runContext.render(getUsername()).as(String.class).orElse(null),
+            runContext.render(getNamespace()),
+            runContext.render(getDatabase()),
+            renderedQuery,
+            JacksonMapper.ofJson().writeValueAsString(new TreeMap<>(parametersValue))
+        );
+    }
+
+    private Query.Output cachedOutput(RunContext runContext, List<Map<String, Object>> rows) throws IOException {
+        Query.Output.OutputBuilder outputBuilder = Output.builder()
+            .size((long) rows.size())
+            .cacheHit(true);
+
+        return (switch (runContext.render(fetchType).as(FetchType.class).orElseThrow()) {
+            case FETCH -> outputBuilder.rows(rows);
+            case FETCH_ONE -> outputBuilder.row(rows.isEmpty() ? null : rows.getFirst());
+            case STORE -> outputBuilder.uri(store(runContext, Flux.fromIterable(rows)));
+            default -> outputBuilder;
+        }).build();
+    }
+
+    private Query.Output runPaginated(RunContext runContext, SurrealDBClient client, QueryPager pager, FetchType fetchTypeValue, Consumer<Map<String, Object>> rowListener, Deadline deadline) throws Exception {
+        List<Map<String, Object>> rows = fetchTypeValue == FetchType.FETCH ? new ArrayList<>() : null;
+        Map<String, Object> firstRow = null;
+        Compression compressionValue = runContext.render(compression).as(Compression.class).orElse(Compression.NONE);
+        File tempFile = fetchTypeValue == FetchType.STORE ? tempFile(runContext, compressionValue) : null;
+        long size = 0;
+        int pages = 0;
+
+        try (Writer output = tempFile != null ? storeWriter(tempFile, compressionValue) : Writer.nullWriter()) {
+            CompletableFuture<List<QueryResult<Object>>> pending = fetchPage(runContext, client, pager.first(), deadline);
+
+            try {
+                while (pending != null) {
+                    List<QueryResult<Object>> results = deadline.await(pending);
+                    QueryMetrics.statements(runContext, results);
+                    pages++;
+
+                    long pageRows = results.stream()
+                        .mapToLong(result -> result.getResult() != null ? (long) result.getResult().size() : (long) 0)
+                        .sum();
+                    size += pageRows;
+                    getResultStream(results).forEach(rowListener);
+
+                    // request the next page before writing this one, so the server works while we serialize
+                    QueryPager.Page next = fetchTypeValue == FetchType.FETCH_ONE ? null : pager.next(pageRows, getResultStream(results).reduce((first, second) -> second).orElse(null));
+                    pending = next != null ? fetchPage(runContext, client, next, deadline) : null;
+
+                    switch (fetchTypeValue) {
+                        case FETCH -> getResultStream(results).forEach(rows::add);
+                        case FETCH_ONE -> firstRow = getResultStream(results).findFirst().orElse(null);
+                        case STORE -> FileSerde.writeAll(output, drainResults(results)).block();
+                        default -> {
+                        }
+                    }
+                }
+            } finally {
+                // a failure while writing must not leave the prefetched page running on the connection
+                if (pending != null) {
+                    pending.cancel(true);
+                }
+            }
+        }
+
+        QueryMetrics.report(runContext, Counter.of("pages", pages));
+
+        Query.Output.OutputBuilder outputBuilder = Output.builder()
+            .size(size)
+            .pages(pages);
+
+        return (switch (fetchTypeValue) {
+            case FETCH -> outputBuilder.rows(rows);
+            case FETCH_ONE -> outputBuilder.row(firstRow);
+            case STORE -> outputBuilder.uri(upload(runContext, tempFile));
             default -> outputBuilder;
         }).build();
     }
 
-    private Stream<Map<String, Object>> getResultStream(List<QueryResult<Object>> results) {
+    private List<StatementOutput> statementOutputs(RunContext runContext, List<QueryResult<Object>> results, FetchType fetchTypeValue) throws IOException {
+        List<StatementOutput> statements = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            List<QueryResult<Object>> statementResults = List.of(results.get(i));
+
+            StatementOutput.StatementOutputBuilder statementBuilder = StatementOutput.builder()
+                .index(i)
+                .status(results.get(i).getStatus())
+                .time(QueryMetrics.parseDuration(results.get(i).getTime()))
+                .size(results.get(i).getResult() != null ? (long) results.get(i).getResult().size() : 0L);
+
+            statements.add((switch (fetchTypeValue) {
+                case FETCH -> statementBuilder.rows(getResultStream(statementResults).toList());
+                case FETCH_ONE -> statementBuilder.row(getResultStream(statementResults).findFirst().orElse(null));
+                case STORE -> statementBuilder.uri(getTempFile(runContext, statementResults));
+                default -> statementBuilder;
+            }).build());
+        }
+
+        return statements;
+    }
+
+    /**
+     * Sends the page request without holding a thread while the server works on it.
+     */
+    private CompletableFuture<List<QueryResult<Object>>> fetchPage(RunContext runContext, SurrealDBClient client, QueryPager.Page page, Deadline deadline) {
+        long start = System.nanoTime();
+        // pages never carry a TIMEOUT clause of their own, QueryPager rejects it
+        return client.queryAsync(page.statement() + deadline.clause(), page.parameters())
+            .whenComplete((results, throwable) -> QueryMetrics.report(runContext, Timer.of("page.duration", Duration.ofNanos(System.nanoTime() - start))));
+    }
+
+    /**
+     * Time left for SurrealDB to answer, unbounded when no {@code queryTimeout} is set.
+     */
+    private record Deadline(Duration timeout, long start) {
+        private static final List<String> TIMEOUT_CLAUSES = List.of("TIMEOUT", "PARALLEL", "EXPLAIN");
+
+        String clause() {
+            return timeout == null ? "" : " TIMEOUT " + Math.max(1, timeout.toMillis()) + "ms";
+        }
+
+        /**
+         * Adds the {@code TIMEOUT} clause to a single {@code SELECT} that has none, leaves any other query as it is.
+         */
+        String withTimeout(String query) {
+            if (timeout == null) {
+                return query;
+            }
+
+            try {
+                return SurrealQL.singleSelect(query, "`queryTimeout`", TIMEOUT_CLAUSES) + clause();
+            } catch (IllegalArgumentException e) {
+                return query;
+            }
+        }
+
+        List<QueryResult<Object>> await(CompletableFuture<List<QueryResult<Object>>> pending) throws Exception {
+            try {
+                if (timeout == null) {
+                    return pending.get();
+                }
+                return pending.get(Math.max(0, start + timeout.toNanos() - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                pending.cancel(true);
+                throw new TimeoutException("SurrealDB did not answer within the query timeout of " + timeout);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    static Stream<Map<String, Object>> getResultStream(List<QueryResult<Object>> results) {
         return results.stream()
             .map(QueryResult::getResult)
             .filter(Objects::nonNull)
             .flatMap(list -> list.stream().map(object -> (Map<String, Object>) object));
     }
 
-    private URI getTempFile(RunContext runContext, List<Map<String, Object>> results) throws IOException {
-        File tempFile = runContext.workingDir().createTempFile(".ion").toFile();
-        try (
-            BufferedWriter fileWriter = new BufferedWriter(new FileWriter(tempFile));
-            var output = new BufferedWriter(new FileWriter(tempFile), FileSerde.BUFFER_SIZE)
-        ) {
-            var flux = Flux.fromIterable(results);
-            FileSerde.writeAll(output, flux).block();
-            fileWriter.flush();
+    /**
+     * Emits every row of the results while releasing it from the driver list, so a row can be
+     * garbage collected as soon as it has been serialized instead of living until the end of the task.
+     */
+    static Flux<Map<String, Object>> drainResults(List<QueryResult<Object>> results) {
+        return Flux.fromIterable(results)
+            .map(QueryResult::getResult)
+            .filter(Objects::nonNull)
+            .concatMap(list -> Flux.range(0, list.size()).map(index -> (Map<String, Object>) list.set(index, null)));
+    }
+
+    private URI getTempFile(RunContext runContext, List<QueryResult<Object>> results) throws IOException {
+        return store(runContext, drainResults(results));
+    }
+
+    private URI store(RunContext runContext, Flux<Map<String, Object>> rows) throws IOException {
+        Compression compressionValue = runContext.render(compression).as(Compression.class).orElse(Compression.NONE);
+        File tempFile = tempFile(runContext, compressionValue);
+        try (Writer output = storeWriter(tempFile, compressionValue)) {
+            FileSerde.writeAll(output, rows).block();
         }
 
-        return runContext.storage().putFile(tempFile);
+        return upload(runContext, tempFile);
     }
 
-    @Builder
+    private static File tempFile(RunContext runContext, Compression compression) throws IOException {
+        // the partitions of an Export create their files in the same working directory at once
+        synchronized (runContext) {
+            return runContext.workingDir().createTempFile(compression.extension()).toFile();
+        }
+    }
+
+    private static Writer storeWriter(File tempFile, Compression compression) throws IOException {
+        OutputStream stream = new FileOutputStream(tempFile);
+        if (compression == Compression.GZIP) {
+            stream = new GZIPOutputStream(stream, FileSerde.BUFFER_SIZE);
+        }
+
+        return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), FileSerde.BUFFER_SIZE);
+    }
+
+    private static URI upload(RunContext runContext, File tempFile) throws IOException {
+        long start = System.nanoTime();
+        URI uri = runContext.storage().putFile(tempFile);
+        QueryMetrics.report(runContext, Timer.of("storage.upload.duration", Duration.ofNanos(System.nanoTime() - start)));
+        return uri;
+    }
+
+    @Builder(toBuilder = true)
     @Getter
     public static class Output implements io.kestra.core.models.tasks.Output {
         @Schema(
             title = "All fetched rows",
-            description = "Populated only when `fetchType: FETCH`."
+            description = "Populated only when `fetchType: FETCH`. Integers are longs, other numbers decimals, and strings in the UTC form SurrealDB gives datetimes, such as `2024-05-01T10:00:00.25Z`, are timestamps, whether the field is a datetime or a string."
         )
         private List<Map<String, Object>> rows;
 
@@ -148,5 +515,85 @@ public class Query extends SurrealDBConnection implements RunnableTask<Query.Out
             title = "Number of rows fetched"
         )
         private Long size;
+
+        @Schema(
+            title = "Number of pages fetched",
+            description = "Populated only when `pagination` is enabled."
+        )
+        private Integer pages;
+
+        @Schema(
+            title = "Results of each statement",
+            description = "Populated only when `perStatement` is enabled, in statement order."
+        )
+        private List<StatementOutput> statements;
+
+        @Schema(
+            title = "Whether the rows were read from the cache",
+            description = "Populated only when `cacheTtl` is set and the query is read-only."
+        )
+        private Boolean cacheHit;
+    }
+
+    public enum Compression {
+        NONE(".ion"),
+        GZIP(".ion.gz");
+
+        private final String extension;
+
+        Compression(String extension) {
+            this.extension = extension;
+        }
+
+        String extension() {
+            return extension;
+        }
+    }
+
+    public enum CacheStore {
+        MEMORY,
+        KV
+    }
+
+    @Builder
+    @Getter
+    public static class StatementOutput {
+        @Schema(
+            title = "Position of the statement in the query, starting at 0"
+        )
+        private Integer index;
+
+        @Schema(
+            title = "Status returned by SurrealDB for the statement"
+        )
+        private String status;
+
+        @Schema(
+            title = "Execution time reported by SurrealDB"
+        )
+        private Duration time;
+
+        @Schema(
+            title = "Number of rows returned by the statement"
+        )
+        private Long size;
+
+        @Schema(
+            title = "Rows of the statement",
+            description = "Populated only when `fetchType: FETCH`."
+        )
+        private List<Map<String, Object>> rows;
+
+        @Schema(
+            title = "First row of the statement",
+            description = "Populated only when `fetchType: FETCH_ONE`."
+        )
+        private Map<String, Object> row;
+
+        @Schema(
+            title = "URI of the stored rows of the statement",
+            description = "Populated only when `fetchType: STORE`."
+        )
+        private URI uri;
     }
 }
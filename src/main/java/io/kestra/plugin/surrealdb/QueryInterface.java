@@ -22,15 +22,16 @@ public interface QueryInterface {
 
     @Schema(
         title = "Named query parameters",
-        description = "SurrealQL prepared-statement parameters rendered before execution. Provide a map of named placeholders to values.",
+        description = "SurrealQL prepared-statement parameters rendered once before execution. Provide a map of named placeholders to values of any JSON type: " +
+            "numbers, booleans, lists and objects are sent as such, so `WHERE id IN $ids` or `c_int = $int` need no server-side cast.",
         example = "my-field: my-value\n" +
-            "my-second-field: my-second-value",
+            "my-ids: [1, 2, 3]",
         allOf = {
             Map.class
         }
     )
     @PluginProperty(group = "advanced")
-    Property<Map<String, String>> getParameters();
+    Property<Map<String, Object>> getParameters();
 
     @Schema(
         title = "SurrealQL query text"
@@ -38,4 +39,26 @@ public interface QueryInterface {
     @PluginProperty(dynamic = true, group = "processing")
     @NotBlank
     String getQuery();
+
+    @Schema(
+        title = "Pagination mode",
+        description = "Splits a single `SELECT` into pages of `pageSize` rows; default `NONE` fetches everything in one response. " +
+            "`OFFSET` appends `LIMIT`/`START` to the query, and `ORDER BY id` when it has no `ORDER BY`, so that pages neither overlap nor skip rows; a query with `GROUP` or `SPLIT` needs its own `ORDER BY`. `KEYSET` orders by record `id` and resumes after the last id of the previous page, which keeps every page cheap on large tables but requires `id` in the selected fields. " +
+            "The next page is fetched while the current one is written, so `STORE` exports run with constant memory."
+    )
+    @PluginProperty(group = "processing")
+    Property<Pagination> getPagination();
+
+    @Schema(
+        title = "Rows per page",
+        description = "Number of rows fetched per request when `pagination` is enabled; default 10000."
+    )
+    @PluginProperty(group = "processing")
+    Property<Integer> getPageSize();
+
+    enum Pagination {
+        NONE,
+        OFFSET,
+        KEYSET
+    }
 }
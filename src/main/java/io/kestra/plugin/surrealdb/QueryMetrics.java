@@ -0,0 +1,84 @@
+package io.kestra.plugin.surrealdb;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.surrealdb.driver.model.QueryResult;
+
+import io.kestra.core.models.executions.AbstractMetricEntry;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.executions.metrics.Timer;
+import io.kestra.core.runners.RunContext;
+
+/**
+ * Metrics of a query: the statements as reported by the server, and the reporting shared by all query metrics.
+ */
+final class QueryMetrics {
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ns|µs|us|ms|s|m|h|d|w)");
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * Emits the server execution time and the number of rows of every statement, tagged with its index.
+     */
+    static void statements(RunContext runContext, List<QueryResult<Object>> results) {
+        Duration serverDuration = Duration.ZERO;
+
+        for (int i = 0; i < results.size(); i++) {
+            QueryResult<Object> result = results.get(i);
+            String statement = String.valueOf(i);
+
+            Duration time = parseDuration(result.getTime());
+            if (time != null) {
+                serverDuration = serverDuration.plus(time);
+                report(runContext, Timer.of("statement.duration", time, "statement", statement));
+            }
+            report(runContext, Counter.of("statement.rows", result.getResult() != null ? result.getResult().size() : 0, "statement", statement));
+        }
+
+        report(runContext, Timer.of("server.duration", serverDuration));
+    }
+
+    /**
+     * Reports a metric, one at a time per run context: the partitions of an {@code Export} share theirs, and page
+     * durations are reported from the thread completing the request.
+     */
+    static void report(RunContext runContext, AbstractMetricEntry<?> metric) {
+        synchronized (runContext) {
+            runContext.metric(metric);
+        }
+    }
+
+    /**
+     * Parses the duration format used by SurrealDB for the statement {@code time}, like {@code 1.2ms},
+     * {@code 850µs} or {@code 1m3s}, returning {@code null} when it cannot be read.
+     */
+    static Duration parseDuration(String time) {
+        if (time == null || time.isBlank()) {
+            return null;
+        }
+
+        Matcher matcher = DURATION_PART.matcher(time.strip());
+        double nanos = 0;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            double value = Double.parseDouble(matcher.group(1));
+            nanos += value * switch (matcher.group(2)) {
+                case "ns" -> 1d;
+                case "µs", "us" -> 1_000d;
+                case "ms" -> 1_000_000d;
+                case "s" -> 1_000_000_000d;
+                case "m" -> 60_000_000_000d;
+                case "h" -> 3_600_000_000_000d;
+                case "d" -> 86_400_000_000_000d;
+                default -> 604_800_000_000_000d;
+            };
+            end = matcher.end();
+        }
+
+        return end == time.strip().length() ? Duration.ofNanos(Math.round(nanos)) : null;
+    }
+}
@@ -0,0 +1,104 @@
+package io.kestra.plugin.surrealdb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a single SurrealQL {@code SELECT} into pages, either with {@code LIMIT}/{@code START} or with a keyset on
+ * record ids, and builds the statement of the next page from the last row of the current one. Offset pages are read in
+ * the order of the query, or by record id when it has none, since SurrealDB does not guarantee any order otherwise.
+ */
+class QueryPager {
+    static final String CURSOR_TABLE_PARAMETER = "kestra_cursor_table";
+    static final String CURSOR_KEY_PARAMETER = "kestra_cursor_key";
+
+    private static final List<String> OFFSET_FORBIDDEN_CLAUSES = List.of("LIMIT", "START", "FETCH", "TIMEOUT", "PARALLEL", "EXPLAIN");
+    private static final Pattern ORDER = Pattern.compile("\\bORDER\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern GROUPING = Pattern.compile("\\b(GROUP|SPLIT)\\b", Pattern.CASE_INSENSITIVE);
+    private static final List<String> KEYSET_FORBIDDEN_CLAUSES = List.of("SPLIT", "GROUP", "ORDER", "LIMIT", "START", "FETCH", "TIMEOUT", "PARALLEL", "EXPLAIN");
+
+    private final String query;
+    private final Map<String, Object> parameters;
+    private final QueryInterface.Pagination pagination;
+    private final int pageSize;
+
+    private long offset = 0;
+
+    QueryPager(String query, Map<String, Object> parameters, QueryInterface.Pagination pagination, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("`pageSize` must be positive, got " + pageSize);
+        }
+
+        String statement = SurrealQL.singleSelect(
+            query,
+            "`pagination: " + pagination + "`",
+            pagination == QueryInterface.Pagination.KEYSET ? KEYSET_FORBIDDEN_CLAUSES : OFFSET_FORBIDDEN_CLAUSES
+        );
+        if (pagination == QueryInterface.Pagination.OFFSET && !ORDER.matcher(statement).find()) {
+            if (GROUPING.matcher(statement).find()) {
+                throw new IllegalArgumentException("`pagination: OFFSET` requires an `ORDER BY` clause with `GROUP` or `SPLIT`, otherwise pages may overlap or skip rows");
+            }
+            statement += " ORDER BY id";
+        }
+
+        this.query = statement;
+        this.parameters = parameters;
+        this.pagination = pagination;
+        this.pageSize = pageSize;
+    }
+
+    Page first() {
+        return switch (pagination) {
+            case OFFSET -> offsetPage();
+            case KEYSET -> new Page(query + " ORDER BY id LIMIT " + pageSize, parameters);
+            case NONE -> new Page(query, parameters);
+        };
+    }
+
+    /**
+     * @param rowCount the number of rows returned by the current page
+     * @param lastRow the last row of the current page, used as cursor for keyset pagination
+     * @return the next page to fetch, or {@code null} when the current one was the last
+     */
+    Page next(long rowCount, Map<String, Object> lastRow) {
+        if (pagination == QueryInterface.Pagination.NONE || rowCount < pageSize) {
+            return null;
+        }
+
+        if (pagination == QueryInterface.Pagination.OFFSET) {
+            offset += rowCount;
+            return offsetPage();
+        }
+
+        Object cursor = lastRow == null ? null : lastRow.get("id");
+        int separator = cursor == null ? -1 : cursor.toString().indexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("`pagination: KEYSET` requires the record `id` to be part of the selected fields, got: " + cursor);
+        }
+
+        String table = cursor.toString().substring(0, separator);
+        String rawKey = cursor.toString().substring(separator + 1);
+        String key = SurrealQL.unquoteKey(rawKey);
+
+        Map<String, Object> pageParameters = new HashMap<>(parameters);
+        pageParameters.put(CURSOR_TABLE_PARAMETER, table);
+        pageParameters.put(CURSOR_KEY_PARAMETER, key);
+
+        return new Page(keysetStatement(SurrealQL.isNumericKey(rawKey)), pageParameters);
+    }
+
+    private Page offsetPage() {
+        return new Page(query + " LIMIT " + pageSize + " START " + offset, parameters);
+    }
+
+    private String keysetStatement(boolean numericKey) {
+        String condition = "id > type::thing($" + CURSOR_TABLE_PARAMETER + ", " + (numericKey ? "<int> $" : "$") + CURSOR_KEY_PARAMETER + ")";
+
+        return SurrealQL.withCondition(query, condition) + " ORDER BY id LIMIT " + pageSize;
+    }
+
+    record Page(String statement, Map<String, Object> parameters) {
+    }
+}
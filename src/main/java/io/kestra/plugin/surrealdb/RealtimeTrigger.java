@@ -0,0 +1,394 @@
+package io.kestra.plugin.surrealdb;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.conditions.ConditionContext;
+import io.kestra.core.models.executions.Execution;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.triggers.AbstractTrigger;
+import io.kestra.core.models.triggers.RealtimeTriggerInterface;
+import io.kestra.core.models.triggers.TriggerContext;
+import io.kestra.core.models.triggers.TriggerOutput;
+import io.kestra.core.models.triggers.TriggerService;
+import io.kestra.core.runners.RunContext;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+@SuperBuilder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@Schema(
+    title = "Trigger Flow on SurrealDB live query changes",
+    description = "Keeps a `LIVE SELECT` subscription open and starts one execution per change notification (`CREATE`, `UPDATE`, `DELETE`), or per micro-batch when `batchSize` is greater than 1. " +
+        "The subscription is registered again after a connection loss; changes made while disconnected are not replayed. " +
+        "If you would like to poll a query on an interval instead, use the [io.kestra.plugin.surrealdb.Trigger](https://kestra.io/plugins/plugin-surrealdb/triggers/io.kestra.plugin.surrealdb.trigger) instead."
+)
+@Plugin(
+    examples = {
+        @Example(
+            title = "Start an execution for every change on a SurrealDB table.",
+            full = true,
+            code = """
+                id: surrealdb_realtime
+                namespace: company.team
+
+                tasks:
+                  - id: log
+                    type: io.kestra.plugin.core.log.Log
+                    message: "{{ trigger.action }} {{ trigger.record }}: {{ trigger.data }}"
+
+                triggers:
+                  - id: live
+                    type: io.kestra.plugin.surrealdb.RealtimeTrigger
+                    host: localhost
+                    port: 8000
+                    username: surreal_user
+                    password: "{{ secret('SURREALDB_PASSWORD') }}"
+                    namespace: surreal_namespace
+                    database: surreal_db
+                    query: LIVE SELECT * FROM SURREAL_TABLE WHERE status = 'ready'
+                """
+        )
+    }
+)
+public class RealtimeTrigger extends AbstractTrigger implements RealtimeTriggerInterface, TriggerOutput<RealtimeTrigger.Output>, SurrealDBConnectionInterface {
+    private static final Duration INITIAL_RECONNECT_DELAY = Duration.ofMillis(500);
+    private static final Duration MAX_RECONNECT_DELAY = Duration.ofMinutes(1);
+
+    @Builder.Default
+    private Property<Boolean> useTls = Property.ofValue(false);
+
+    @Positive
+    @Builder.Default
+    private int port = 8000;
+
+    @NotBlank
+    private String host;
+
+    @ToString.Exclude
+    private Property<String> username;
+
+    @ToString.Exclude
+    private Property<String> password;
+
+    @NotBlank
+    private String namespace;
+
+    @NotBlank
+    private String database;
+
+    @Positive
+    @Builder.Default
+    private int connectionTimeout = 60;
+
+    @Schema(
+        title = "SurrealQL `LIVE SELECT` statement"
+    )
+    @NotBlank
+    @PluginProperty(dynamic = true, group = "main")
+    private String query;
+
+    @Schema(
+        title = "Named query parameters",
+        description = "SurrealQL parameters bound when the live query is registered."
+    )
+    @Builder.Default
+    @PluginProperty(group = "advanced")
+    private Property<Map<String, Object>> parameters = Property.ofValue(new HashMap<>());
+
+    @Schema(
+        title = "Notifications per execution",
+        description = "Maximum number of notifications grouped into one execution; default 1 starts an execution per change."
+    )
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> batchSize = Property.ofValue(1);
+
+    @Schema(
+        title = "Maximum batch wait",
+        description = "Maximum time a notification waits for its batch to fill up when `batchSize` is greater than 1; default 1 second."
+    )
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Duration> batchDuration = Property.ofValue(Duration.ofSeconds(1));
+
+    @Schema(
+        title = "Notification buffer size",
+        description = "Maximum number of received notifications waiting to become executions; default 1000. " +
+            "Once full, the trigger stops reading from the socket until executions catch up."
+    )
+    @Builder.Default
+    @PluginProperty(group = "advanced")
+    private Property<Integer> bufferSize = Property.ofValue(1000);
+
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean isActive = new AtomicBoolean(true);
+
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    private final CountDownLatch waitForTermination = new CountDownLatch(1);
+
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<SurrealDBRpcClient> client = new AtomicReference<>();
+
+    @Override
+    public Publisher<Execution> evaluate(ConditionContext conditionContext, TriggerContext context) throws Exception {
+        RunContext runContext = conditionContext.getRunContext();
+        int renderedBatchSize = runContext.render(batchSize).as(Integer.class).orElseThrow();
+        BlockingQueue<Notification> queue = new ArrayBlockingQueue<>(runContext.render(bufferSize).as(Integer.class).orElseThrow());
+
+        Subscription subscription = new Subscription(
+            runContext.render(host),
+            runContext.render(useTls).as(Boolean.class).orElseThrow(),
+            username == null ? null : runContext.render(username).as(String.class).orElse(null),
+            password == null ? null : runContext.render(password).as(String.class).orElse(null),
+            runContext.render(namespace),
+            runContext.render(database),
+            runContext.render(query),
+            SurrealQL.parameters(runContext.render(parameters).asMap(String.class, Object.class))
+        );
+
+        Thread.ofVirtual()
+            .name("surrealdb-live-" + this.getId())
+            .start(() -> subscribe(runContext.logger(), subscription, queue));
+
+        Flux<Notification> notifications = Flux.<Notification>generate(sink -> {
+                try {
+                    Notification notification = null;
+                    while (notification == null && isActive.get()) {
+                        notification = queue.poll(100, TimeUnit.MILLISECONDS);
+                    }
+
+                    if (notification == null) {
+                        sink.complete();
+                    } else {
+                        sink.next(notification);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    sink.complete();
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+
+        Flux<Output> outputs = renderedBatchSize > 1
+            ? notifications.bufferTimeout(renderedBatchSize, runContext.render(batchDuration).as(Duration.class).orElseThrow()).map(Output::of)
+            : notifications.map(notification -> Output.of(List.of(notification)));
+
+        return outputs.map(output -> TriggerService.generateRealtimeExecution(this, conditionContext, context, output));
+    }
+
+    private void subscribe(Logger logger, Subscription subscription, BlockingQueue<Notification> queue) {
+        Duration reconnectDelay = INITIAL_RECONNECT_DELAY;
+        Duration timeout = Duration.ofSeconds(connectionTimeout);
+
+        try {
+            while (isActive.get()) {
+                SurrealDBRpcClient liveClient = new SurrealDBRpcClient(subscription.host(), port, subscription.useTls(), json -> enqueue(queue, json));
+                client.set(liveClient);
+
+                try {
+                    // stop() may have run since the loop check, closing the previous client instead of this one
+                    if (!isActive.get()) {
+                        break;
+                    }
+
+                    liveClient.open(timeout, subscription.username(), subscription.password(), subscription.namespace(), subscription.database());
+
+                    String liveQueryId = liveQueryId(liveClient.call(timeout, "query", subscription.query(), subscription.parameters()));
+                    logger.info("Subscribed to live query '{}' with id '{}'", subscription.query(), liveQueryId);
+                    reconnectDelay = INITIAL_RECONNECT_DELAY;
+
+                    // or while it was still connecting, which does not close the socket opened afterwards
+                    if (isActive.get()) {
+                        liveClient.closed().join();
+                    }
+                } catch (Exception e) {
+                    if (isActive.get()) {
+                        logger.warn("Live query subscription failed, retrying in {}", reconnectDelay, e);
+                    }
+                } finally {
+                    liveClient.close();
+                }
+
+                if (isActive.get()) {
+                    Thread.sleep(reconnectDelay.toMillis());
+                    Duration doubled = reconnectDelay.multipliedBy(2);
+                    reconnectDelay = doubled.compareTo(MAX_RECONNECT_DELAY) > 0 ? MAX_RECONNECT_DELAY : doubled;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waitForTermination.countDown();
+        }
+    }
+
+    private void enqueue(BlockingQueue<Notification> queue, JsonObject json) {
+        Notification notification = Notification.of(json);
+
+        try {
+            while (isActive.get() && !queue.offer(notification, 100, TimeUnit.MILLISECONDS)) {
+                // blocking the socket reader until executions catch up is our backpressure
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String liveQueryId(JsonElement result) {
+        JsonObject statement = result.getAsJsonArray().get(0).getAsJsonObject();
+        if (!"OK".equals(statement.get("status").getAsString())) {
+            throw new IllegalArgumentException("Unable to register the live query: " + statement.get("result"));
+        }
+
+        return statement.get("result").getAsString();
+    }
+
+    @Override
+    public void kill() {
+        stop(true);
+    }
+
+    @Override
+    public void stop() {
+        stop(false); // must be non-blocking
+    }
+
+    private void stop(boolean wait) {
+        if (!isActive.compareAndSet(true, false)) {
+            return;
+        }
+
+        SurrealDBRpcClient liveClient = client.get();
+        if (liveClient != null) {
+            liveClient.close();
+        }
+
+        if (wait) {
+            try {
+                this.waitForTermination.await(connectionTimeout, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private record Subscription(String host, boolean useTls, String username, String password, String namespace, String database, String query, Map<String, Object> parameters) {
+    }
+
+    @Builder
+    @Getter
+    public static class Notification {
+        @Schema(
+            title = "Change action",
+            description = "`CREATE`, `UPDATE` or `DELETE`."
+        )
+        private String action;
+
+        @Schema(
+            title = "Changed record id"
+        )
+        private String record;
+
+        @Schema(
+            title = "Record content after the change"
+        )
+        private Map<String, Object> data;
+
+        private static Notification of(JsonObject json) {
+            JsonElement result = json.get("result");
+            Map<String, Object> data = result != null && result.isJsonObject() ? SurrealDBRpcClient.toMap(result) : null;
+
+            String record = null;
+            if (json.has("record") && !json.get("record").isJsonNull()) {
+                record = json.get("record").getAsString();
+            } else if (data != null && data.get("id") != null) {
+                record = data.get("id").toString();
+            } else if (result != null && result.isJsonPrimitive()) {
+                record = result.getAsString();
+            }
+
+            return Notification.builder()
+                .action(json.get("action").getAsString())
+                .record(record)
+                .data(data)
+                .build();
+        }
+    }
+
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(
+            title = "Change action",
+            description = "`CREATE`, `UPDATE` or `DELETE`; populated when the execution holds a single notification."
+        )
+        private String action;
+
+        @Schema(
+            title = "Changed record id",
+            description = "Populated when the execution holds a single notification."
+        )
+        private String record;
+
+        @Schema(
+            title = "Record content after the change",
+            description = "Populated when the execution holds a single notification."
+        )
+        private Map<String, Object> data;
+
+        @Schema(
+            title = "All notifications of the execution"
+        )
+        private List<Notification> notifications;
+
+        @Schema(
+            title = "Number of notifications"
+        )
+        private Integer size;
+
+        private static Output of(List<Notification> notifications) {
+            OutputBuilder builder = Output.builder()
+                .notifications(notifications)
+                .size(notifications.size());
+
+            if (notifications.size() == 1) {
+                builder
+                    .action(notifications.getFirst().getAction())
+                    .record(notifications.getFirst().getRecord())
+                    .data(notifications.getFirst().getData());
+            }
+
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.kestra.plugin.surrealdb;
+
+import java.time.Duration;
+
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.property.Property;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public interface RequestTimeoutInterface {
+
+    @Schema(
+        title = "Request timeout",
+        description = "Maximum time for SurrealDB to answer a single request; default is 5 minutes. " +
+            "A request left unanswered fails, and its connection is closed; when the task retries it, it is sent again over a new connection. " +
+            "As the server may still have applied the unanswered request, retried writes are applied at least once."
+    )
+    @PluginProperty(group = "execution")
+    Property<Duration> getRequestTimeout();
+}
@@ -0,0 +1,195 @@
+package io.kestra.plugin.surrealdb;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.serializers.FileSerde;
+import io.kestra.core.storages.kv.KVMetadata;
+import io.kestra.core.storages.kv.KVValue;
+import io.kestra.core.storages.kv.KVValueAndMetadata;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Rows of read-only queries kept for {@code cacheTtl}, either in the memory of the worker or in the namespace KV store
+ * so that every worker shares them. Rows are kept in the ION format of stored files, so cached values keep their type.
+ */
+final class ResultCache {
+    static final long MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    private static final String KV_PREFIX = "surrealdb_query_";
+    private static final ResultCache INSTANCE = new ResultCache(MAX_MEMORY_BYTES);
+
+    private final long maxMemoryBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+
+    ResultCache(long maxMemoryBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    static ResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Hashes everything the rows depend on: the endpoint, the user whose permissions apply, the query and its parameters.
+     */
+    static String key(Object... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    Optional<List<Map<String, Object>>> get(RunContext runContext, Query.CacheStore store, String key) throws IOException {
+        String payload = switch (store) {
+            case MEMORY -> memoryGet(key);
+            case KV -> runContext.namespaceKv(runContext.flowInfo().namespace())
+                .getValue(KV_PREFIX + key)
+                .map(KVValue::value)
+                .map(String::valueOf)
+                .orElse(null);
+        };
+
+        if (payload == null) {
+            return Optional.empty();
+        }
+
+        try (BufferedReader reader = new BufferedReader(new StringReader(payload))) {
+            return Optional.of(FileSerde.readAll(reader).map(row -> (Map<String, Object>) row).collectList().block());
+        }
+    }
+
+    /**
+     * Keeps the rows gathered by the collector for {@code ttl}, unless it gave up on them.
+     *
+     * @return whether the rows were cached
+     */
+    boolean put(RunContext runContext, Query.CacheStore store, String key, Collector rows, Duration ttl) throws IOException {
+        if (rows.overflowed()) {
+            return false;
+        }
+
+        String payload = rows.payload();
+        switch (store) {
+            case MEMORY -> memoryPut(key, new Entry(payload, rows.bytes(), System.nanoTime() + ttl.toNanos()));
+            case KV -> runContext.namespaceKv(runContext.flowInfo().namespace()).put(
+                KV_PREFIX + key,
+                new KVValueAndMetadata(new KVMetadata("Rows of a SurrealDB query cached by the Query task", ttl), payload)
+            );
+        }
+        return true;
+    }
+
+    private synchronized String memoryGet(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.nanoTime() - entry.expiresAt() >= 0) {
+            remove(key);
+            return null;
+        }
+
+        return entry.payload();
+    }
+
+    private synchronized void memoryPut(String key, Entry entry) {
+        if (entry.bytes() > maxMemoryBytes) {
+            return;
+        }
+
+        remove(key);
+        entries.put(key, entry);
+        memoryBytes += entry.bytes();
+
+        var eldest = entries.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+            memoryBytes -= eldest.next().getValue().bytes();
+            eldest.remove();
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            memoryBytes -= removed.bytes();
+        }
+    }
+
+    synchronized long memoryBytes() {
+        return memoryBytes;
+    }
+
+    private record Entry(String payload, long bytes, long expiresAt) {
+    }
+
+    /**
+     * Serializes the rows handed to it as they come, and drops them as soon as they take more than {@code maxBytes}
+     * of UTF-8, so a result too large to be cached is never held twice.
+     */
+    static final class Collector implements Consumer<Map<String, Object>> {
+        private final long maxBytes;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+
+        Collector(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void accept(Map<String, Object> row) {
+            if (buffer == null) {
+                return;
+            }
+
+            try {
+                FileSerde.writeAll(writer, Flux.just(row)).block();
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            if (buffer.size() > maxBytes) {
+                buffer = null;
+                writer = null;
+            }
+        }
+
+        boolean overflowed() {
+            return buffer == null;
+        }
+
+        long bytes() {
+            return buffer == null ? 0 : buffer.size();
+        }
+
+        String payload() {
+            return buffer.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.kestra.plugin.surrealdb;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.surrealdb.driver.AsyncSurrealDriver;
+import com.surrealdb.driver.SyncSurrealDriver;
+import com.surrealdb.driver.model.QueryResult;
+
+/**
+ * An open and authenticated SurrealDB connection owned by a task run.
+ * <p>
+ * Closing it disconnects the WebSocket and stops its reader thread, or gives the connection back to the pool when it
+ * was borrowed, so it must always be used in a try-with-resources block.
+ */
+final class SurrealDBClient implements AutoCloseable {
+    private final MeteredConnection connection;
+    private final SyncSurrealDriver driver;
+    private final AsyncSurrealDriver asyncDriver;
+    private final SurrealDBConnectionPool.Lease lease;
+    private final Duration connectDuration;
+    private final Duration authDuration;
+    private boolean closed;
+
+    private SurrealDBClient(MeteredConnection connection, SyncSurrealDriver driver, SurrealDBConnectionPool.Lease lease, Duration connectDuration, Duration authDuration) {
+        this.connection = connection;
+        this.driver = driver;
+        this.asyncDriver = new AsyncSurrealDriver(connection);
+        this.lease = lease;
+        this.connectDuration = connectDuration;
+        this.authDuration = authDuration;
+    }
+
+    /**
+     * Opens a new connection, signs in when credentials are given and selects the namespace and database.
+     * The socket is closed if any of these steps fails.
+     */
+    static SurrealDBClient open(String host, int port, boolean useTls, int connectionTimeout, String username, String password, String namespace, String database) throws ConnectException {
+        MeteredConnection connection = new MeteredConnection(host, port, useTls);
+        try {
+            long start = System.nanoTime();
+            connection.connect(connectionTimeout);
+            if (!connection.isOpen()) {
+                throw new ConnectException("Unable to connect to SurrealDB at " + (useTls ? "wss://" : "ws://") + host + ":" + port + " within " + connectionTimeout + "s");
+            }
+
+            long connected = System.nanoTime();
+
+            SyncSurrealDriver driver = new SyncSurrealDriver(connection);
+            if (username != null && password != null) {
+                driver.signIn(username, password);
+            }
+            driver.use(namespace, database);
+
+            return new SurrealDBClient(connection, driver, null, Duration.ofNanos(connected - start), Duration.ofNanos(System.nanoTime() - connected));
+        } catch (ConnectException | RuntimeException e) {
+            disconnect(connection);
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps a pooled connection, closing the returned client releases the lease instead of the socket.
+     * Connect and auth durations are only kept when the connection was opened for this lease.
+     */
+    static SurrealDBClient of(SurrealDBConnectionPool.Lease lease) {
+        SurrealDBClient pooled = lease.client();
+        return lease.isCreated()
+            ? new SurrealDBClient(pooled.connection, pooled.driver, lease, pooled.connectDuration, pooled.authDuration)
+            : new SurrealDBClient(pooled.connection, pooled.driver, lease, null, null);
+    }
+
+    /**
+     * Sends a query without blocking the calling thread; the response is decoded on the socket reader thread, with
+     * {@link TypedRow} values, and completes the future, so several queries can be in flight on the same socket.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    CompletableFuture<List<QueryResult<Object>>> queryAsync(String statement, Map<String, Object> parameters) {
+        // the driver declares string parameters but serializes the map with Gson, so JSON values go through as such;
+        // rows are decoded by TypedRow's adapter into maps, lists and native values, never into TypedRow instances
+        return (CompletableFuture<List<QueryResult<Object>>>) (CompletableFuture<?>) asyncDriver.query(statement, (Map) parameters, TypedRow.class);
+    }
+
+    MeteredConnection connection() {
+        return connection;
+    }
+
+    /**
+     * Time taken to open the socket, {@code null} when an already open pooled connection was reused.
+     */
+    Duration connectDuration() {
+        return connectDuration;
+    }
+
+    /**
+     * Time taken to sign in and select the namespace and database, {@code null} when an already open pooled
+     * connection was reused.
+     */
+    Duration authDuration() {
+        return authDuration;
+    }
+
+    boolean isOpen() {
+        return !closed && connection.isOpen();
+    }
+
+    /**
+     * Marks a pooled connection as unusable so it is discarded on close, has no effect on a dedicated one.
+     */
+    void invalidate() {
+        if (lease != null) {
+            lease.invalidate();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (lease != null) {
+            lease.close();
+        } else {
+            disconnect(connection);
+        }
+    }
+
+    private static void disconnect(MeteredConnection connection) {
+        try {
+            connection.disconnect();
+        } catch (RuntimeException ignored) {
+            // the socket is unusable either way, closing must not hide the original failure
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package io.kestra.plugin.surrealdb;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.surrealdb.connection.SurrealConnection;
-import com.surrealdb.connection.SurrealWebSocketConnection;
-import com.surrealdb.driver.SyncSurrealDriver;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
 
-import io.kestra.core.exceptions.IllegalVariableEvaluationException;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.executions.metrics.Timer;
 import io.kestra.core.models.property.Property;
 import io.kestra.core.models.tasks.Task;
 import io.kestra.core.runners.RunContext;
@@ -20,7 +20,7 @@ import lombok.experimental.SuperBuilder;
 @EqualsAndHashCode
 @Getter
 @NoArgsConstructor
-public abstract class SurrealDBConnection extends Task implements SurrealDBConnectionInterface {
+public abstract class SurrealDBConnection extends Task implements SurrealDBConnectionInterface, PooledConnectionInterface {
 
     @Builder.Default
     private Property<Boolean> useTls = Property.ofValue(false);
@@ -48,34 +48,111 @@ public abstract class SurrealDBConnection extends Task implements SurrealDBConne
     @Builder.Default
     private int connectionTimeout = 60;
 
-    @JsonIgnore
-    private SurrealConnection connection;
+    @Builder.Default
+    private Property<Boolean> pooled = Property.ofValue(false);
 
-    protected SyncSurrealDriver connect(RunContext runContext) throws IllegalVariableEvaluationException {
-        SurrealWebSocketConnection connection = new SurrealWebSocketConnection(runContext.render(host), port, runContext.render(useTls).as(Boolean.class).orElseThrow());
-        connection.connect(connectionTimeout);
+    @Builder.Default
+    private Property<Integer> maxPoolSize = Property.ofValue(4);
 
-        SyncSurrealDriver driver = new SyncSurrealDriver(connection);
+    @Builder.Default
+    private Property<Duration> poolIdleTimeout = Property.ofValue(Duration.ofMinutes(5));
+
+    /**
+     * Opens a connection for this run, or borrows one from the worker-wide pool when {@code pooled} is enabled.
+     * The returned client must be closed, which disconnects it or gives it back to the pool.
+     */
+    protected SurrealDBClient connect(RunContext runContext) throws Exception {
+        String renderedHost = runContext.render(host);
+        boolean renderedUseTls = runContext.render(useTls).as(Boolean.class).orElseThrow();
+        String renderedUsername = username == null ? null : runContext.render(username).as(String.class).orElse(null);
+        String renderedPassword = password == null ? null : runContext.render(password).as(String.class).orElse(null);
+        String renderedNamespace = runContext.render(namespace);
+        String renderedDatabase = runContext.render(database);
+
+        if (!runContext.render(pooled).as(Boolean.class).orElse(false)) {
+            return withConnectMetrics(runContext, SurrealDBClient.open(renderedHost, port, renderedUseTls, connectionTimeout, renderedUsername, renderedPassword, renderedNamespace, renderedDatabase));
+        }
 
-        signIn(driver, runContext);
-        useDatabase(driver, runContext);
+        SurrealDBConnectionPool.Key key = new SurrealDBConnectionPool.Key(
+            renderedHost, port, renderedUseTls, renderedUsername, renderedPassword, renderedNamespace, renderedDatabase,
+            runContext.render(maxPoolSize).as(Integer.class).orElseThrow()
+        );
+
+        SurrealDBConnectionPool.Lease lease = SurrealDBConnectionPool.getInstance().borrow(
+            key,
+            runContext.render(poolIdleTimeout).as(Duration.class).orElseThrow(),
+            Duration.ofSeconds(connectionTimeout),
+            () -> SurrealDBClient.open(renderedHost, port, renderedUseTls, connectionTimeout, renderedUsername, renderedPassword, renderedNamespace, renderedDatabase)
+        );
+
+        QueryMetrics.report(runContext, Counter.of("pool.borrow", 1));
+        QueryMetrics.report(runContext, Counter.of("pool.wait", lease.isWaited() ? 1 : 0));
+        QueryMetrics.report(runContext, Counter.of("pool.created", lease.isCreated() ? 1 : 0));
+        if (lease.isWaited()) {
+            QueryMetrics.report(runContext, Timer.of("pool.wait.duration", lease.getWaitDuration()));
+        }
 
-        return driver;
+        return withConnectMetrics(runContext, SurrealDBClient.of(lease));
     }
 
-    protected void disconnect() {
-        if (this.connection != null) {
-            connection.disconnect();
+    /**
+     * The connection held by the reference, replaced by a new one when it was closed or dropped. Safe to call from the
+     * threads of several requests sharing the connection: only one of them reconnects.
+     */
+    protected SurrealDBClient connection(RunContext runContext, AtomicReference<SurrealDBClient> client) throws Exception {
+        synchronized (client) {
+            SurrealDBClient current = client.get();
+            if (current.isOpen()) {
+                return current;
+            }
+
+            current.invalidate();
+            current.close();
+            SurrealDBClient reconnected = connect(runContext);
+            client.set(reconnected);
+            return reconnected;
         }
     }
 
-    private void useDatabase(SyncSurrealDriver driver, RunContext context) throws IllegalVariableEvaluationException {
-        driver.use(context.render(namespace), context.render(database));
+    /**
+     * Whether a request failed because of its connection rather than of its statements, so that sending it again over
+     * a new connection may succeed.
+     */
+    static boolean isConnectionFailure(Throwable throwable, SurrealDBClient client) {
+        return throwable instanceof IOException || !client.isOpen();
     }
 
-    private void signIn(SyncSurrealDriver driver, RunContext context) throws IllegalVariableEvaluationException {
-        if (username != null && password != null) {
-            driver.signIn(context.render(username).as(String.class).orElseThrow(), context.render(password).as(String.class).orElseThrow());
+    private static SurrealDBClient withConnectMetrics(RunContext runContext, SurrealDBClient client) {
+        if (client.connectDuration() != null) {
+            QueryMetrics.report(runContext, Timer.of("connect.duration", client.connectDuration()));
+        }
+        if (client.authDuration() != null) {
+            QueryMetrics.report(runContext, Timer.of("auth.duration", client.authDuration()));
         }
+
+        return client;
+    }
+
+    /**
+     * Opens a dedicated JSON-RPC connection on which several requests can be in flight at once, for bulk writes.
+     * It is never pooled, and must be closed by the caller.
+     */
+    protected SurrealDBRpcClient connectPipelined(RunContext runContext) throws Exception {
+        SurrealDBRpcClient client = new SurrealDBRpcClient(runContext.render(host), port, runContext.render(useTls).as(Boolean.class).orElseThrow());
+
+        try {
+            client.open(
+                Duration.ofSeconds(connectionTimeout),
+                username == null ? null : runContext.render(username).as(String.class).orElse(null),
+                password == null ? null : runContext.render(password).as(String.class).orElse(null),
+                runContext.render(namespace),
+                runContext.render(database)
+            );
+        } catch (Exception e) {
+            client.close();
+            throw e;
+        }
+
+        return client;
     }
 }
@@ -0,0 +1,191 @@
+package io.kestra.plugin.surrealdb;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.surrealdb.driver.AsyncSurrealDriver;
+
+/**
+ * Worker-wide pool of authenticated SurrealDB WebSocket connections, keyed on everything that defines a session
+ * (endpoint, credentials, namespace and database), so repeated task runs skip the handshake, {@code signin} and {@code use}.
+ * <p>
+ * Idle connections are handed out most recently used first, checked with a {@code ping} when they have been idle for a
+ * while, and closed by a background evictor once idle for longer than the idle timeout of their key.
+ */
+final class SurrealDBConnectionPool {
+    private static final SurrealDBConnectionPool INSTANCE = new SurrealDBConnectionPool();
+    private static final Duration HEALTH_CHECK_AFTER = Duration.ofSeconds(30);
+    private static final Duration EVICTION_INTERVAL = Duration.ofSeconds(30);
+
+    private final Map<Key, Partition> partitions = new ConcurrentHashMap<>();
+
+    private SurrealDBConnectionPool() {
+        ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "surrealdb-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, EVICTION_INTERVAL.toMillis(), EVICTION_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    static SurrealDBConnectionPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Borrows a connection for the given key, waiting up to {@code waitTimeout} when {@code key.maxSize()} connections are already in use.
+     */
+    Lease borrow(Key key, Duration idleTimeout, Duration waitTimeout, ConnectionFactory factory) throws Exception {
+        Partition partition = partitions.computeIfAbsent(key, k -> new Partition(k.maxSize()));
+        partition.idleTimeout = idleTimeout;
+
+        long start = System.nanoTime();
+        boolean waited = false;
+        if (!partition.permits.tryAcquire()) {
+            waited = true;
+            if (!partition.permits.tryAcquire(waitTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException("No pooled SurrealDB connection to " + key + " was released within " + waitTimeout);
+            }
+        }
+        Duration waitDuration = Duration.ofNanos(System.nanoTime() - start);
+
+        try {
+            PooledConnection connection;
+            while ((connection = partition.idle.pollFirst()) != null) {
+                if (connection.isHealthy(waitTimeout)) {
+                    return new Lease(partition, connection, false, waited, waitDuration);
+                }
+                connection.client.close();
+            }
+
+            return new Lease(partition, new PooledConnection(factory.create()), true, waited, waitDuration);
+        } catch (Exception e) {
+            partition.permits.release();
+            throw e;
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        partitions.values().forEach(partition -> partition.idle.forEach(connection -> {
+            if (now - connection.lastUsed > partition.idleTimeout.toNanos() && partition.idle.remove(connection)) {
+                connection.client.close();
+            }
+        }));
+    }
+
+    @FunctionalInterface
+    interface ConnectionFactory {
+        SurrealDBClient create() throws Exception;
+    }
+
+    record Key(String host, int port, boolean useTls, String username, String password, String namespace, String database, int maxSize) {
+        @Override
+        public String toString() {
+            return (useTls ? "wss://" : "ws://") + host + ":" + port + " (" + namespace + "/" + database + ")";
+        }
+    }
+
+    private static final class Partition {
+        private final Semaphore permits;
+        private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+        private volatile Duration idleTimeout = Duration.ofMinutes(5);
+
+        private Partition(int maxSize) {
+            this.permits = new Semaphore(maxSize, true);
+        }
+    }
+
+    private static final class PooledConnection {
+        private final SurrealDBClient client;
+        private volatile long lastUsed = System.nanoTime();
+
+        private PooledConnection(SurrealDBClient client) {
+            this.client = client;
+        }
+
+        private boolean isHealthy(Duration timeout) {
+            if (!client.isOpen()) {
+                return false;
+            }
+
+            if (System.nanoTime() - lastUsed < HEALTH_CHECK_AFTER.toNanos()) {
+                return true;
+            }
+
+            try {
+                new AsyncSurrealDriver(client.connection()).ping().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * A borrowed connection, returned to its pool on {@link #close()} unless it was {@link #invalidate() invalidated}.
+     */
+    static final class Lease implements AutoCloseable {
+        private final Partition partition;
+        private final PooledConnection connection;
+        private final boolean created;
+        private final boolean waited;
+        private final Duration waitDuration;
+        private boolean invalid;
+        private boolean released;
+
+        private Lease(Partition partition, PooledConnection connection, boolean created, boolean waited, Duration waitDuration) {
+            this.partition = partition;
+            this.connection = connection;
+            this.created = created;
+            this.waited = waited;
+            this.waitDuration = waitDuration;
+        }
+
+        SurrealDBClient client() {
+            return connection.client;
+        }
+
+        boolean isCreated() {
+            return created;
+        }
+
+        boolean isWaited() {
+            return waited;
+        }
+
+        Duration getWaitDuration() {
+            return waitDuration;
+        }
+
+        /**
+         * Marks the connection as unusable, so it is closed instead of being returned to the pool.
+         */
+        void invalidate() {
+            this.invalid = true;
+        }
+
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+
+            if (invalid) {
+                connection.client.close();
+            } else {
+                connection.lastUsed = System.nanoTime();
+                partition.idle.offerFirst(connection);
+            }
+            partition.permits.release();
+        }
+    }
+}
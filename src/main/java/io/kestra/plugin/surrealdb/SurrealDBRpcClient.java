@@ -0,0 +1,157 @@
+package io.kestra.plugin.surrealdb;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * JSON-RPC client able to keep several requests in flight on one socket, and to receive live query notifications,
+ * which {@code surrealdb-driver} drops since they carry no request id.
+ * <p>
+ * Notifications are handed to the consumer on the socket reader thread, so a consumer that blocks stops reading from
+ * the socket and pushes back on the server instead of buffering without limit.
+ */
+final class SurrealDBRpcClient extends WebSocketClient {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final AtomicLong lastRequestId = new AtomicLong();
+    private final Map<String, CompletableFuture<JsonElement>> callbacks = new ConcurrentHashMap<>();
+    private final CompletableFuture<Void> closed = new CompletableFuture<>();
+    private final Consumer<JsonObject> notifications;
+
+    SurrealDBRpcClient(String host, int port, boolean useTls) {
+        this(host, port, useTls, notification -> {});
+    }
+
+    SurrealDBRpcClient(String host, int port, boolean useTls, Consumer<JsonObject> notifications) {
+        super(URI.create((useTls ? "wss://" : "ws://") + host + ":" + port + "/rpc"));
+        this.notifications = notifications;
+    }
+
+    /**
+     * Connects, signs in when credentials are given and selects the namespace and database.
+     */
+    void open(Duration timeout, String username, String password, String namespace, String database) throws Exception {
+        if (!connectBlocking(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new ConnectException("Unable to connect to SurrealDB at " + getURI() + " within " + timeout.toSeconds() + "s");
+        }
+
+        if (username != null && password != null) {
+            call(timeout, "signin", Map.of("user", username, "pass", password));
+        }
+        call(timeout, "use", namespace, database);
+    }
+
+    /**
+     * Sends a request and waits for its result, failing with the server error message if any.
+     */
+    JsonElement call(Duration timeout, String method, Object... params) throws Exception {
+        CompletableFuture<JsonElement> callback = callAsync(method, params);
+
+        try {
+            return callback.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            callback.cancel(false);
+        }
+    }
+
+    /**
+     * Sends a request without waiting for its result, so that several requests can share the socket round trip.
+     */
+    CompletableFuture<JsonElement> callAsync(String method, Object... params) {
+        return callAsyncJson(method, GSON.toJson(params));
+    }
+
+    /**
+     * Same as {@link #callAsync(String, Object...)} with parameters already serialized as a JSON array, letting
+     * callers encode large payloads without an intermediate JSON tree.
+     */
+    CompletableFuture<JsonElement> callAsyncJson(String method, String paramsJson) {
+        String id = String.valueOf(lastRequestId.incrementAndGet());
+        CompletableFuture<JsonElement> callback = new CompletableFuture<>();
+        callbacks.put(id, callback);
+        callback.whenComplete((result, throwable) -> callbacks.remove(id));
+
+        try {
+            send("{\"id\":\"" + id + "\",\"method\":" + GSON.toJson(method) + ",\"params\":" + paramsJson + "}");
+        } catch (RuntimeException e) {
+            callback.completeExceptionally(e);
+        }
+
+        return callback;
+    }
+
+    /**
+     * Completes once the socket is closed, whichever side closed it.
+     */
+    CompletableFuture<Void> closed() {
+        return closed;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> toMap(JsonElement element) {
+        return (Map<String, Object>) TypedRow.decode(element);
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshake) {
+    }
+
+    @Override
+    public void onMessage(String message) {
+        JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+
+        JsonElement id = json.get("id");
+        if (id != null && !id.isJsonNull()) {
+            CompletableFuture<JsonElement> callback = callbacks.get(id.getAsString());
+            if (callback == null) {
+                return;
+            }
+
+            JsonElement error = json.get("error");
+            if (error != null && !error.isJsonNull()) {
+                callback.completeExceptionally(new IllegalStateException(
+                    error.isJsonObject() && error.getAsJsonObject().has("message") ? error.getAsJsonObject().get("message").getAsString() : error.toString()
+                ));
+            } else {
+                callback.complete(json.get("result"));
+            }
+            return;
+        }
+
+        JsonElement result = json.get("result");
+        if (result != null && result.isJsonObject() && result.getAsJsonObject().has("action")) {
+            notifications.accept(result.getAsJsonObject());
+        }
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        IllegalStateException exception = new IllegalStateException("SurrealDB connection closed (" + code + "): " + reason);
+        callbacks.values().forEach(callback -> callback.completeExceptionally(exception));
+        closed.complete(null);
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        // the socket is closed right after, which fails pending calls and ends the subscription
+    }
+}
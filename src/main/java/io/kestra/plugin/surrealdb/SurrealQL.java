@@ -0,0 +1,130 @@
+package io.kestra.plugin.surrealdb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.kestra.core.serializers.JacksonMapper;
+
+/**
+ * Small helpers preparing SurrealQL statements and their parameters, mostly rewriting single {@code SELECT} statements.
+ * <p>
+ * Rewrites are keyword based, not a parser: clauses appearing inside sub-queries or string literals can confuse them,
+ * which is why callers reject statements they cannot safely rewrite.
+ */
+final class SurrealQL {
+    private static final Pattern SELECT = Pattern.compile("^\\s*SELECT\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FROM = Pattern.compile("\\bFROM\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHERE = Pattern.compile("\\bWHERE\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern READ_STATEMENT = Pattern.compile("^\\s*(SELECT|INFO)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WRITE_KEYWORD = Pattern.compile("\\b(CREATE|UPDATE|UPSERT|INSERT|RELATE|DELETE|DEFINE|REMOVE|ALTER|REBUILD|KILL|LIVE)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NUMERIC_KEY = Pattern.compile("^-?\\d+$");
+    private static final Pattern PLAIN_IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Pattern TRAILING_CLAUSE = Pattern.compile("\\b(SPLIT|GROUP|ORDER|LIMIT|START|FETCH|TIMEOUT|PARALLEL|EXPLAIN)\\b", Pattern.CASE_INSENSITIVE);
+
+    private SurrealQL() {
+    }
+
+    /**
+     * Strips trailing semicolons and checks the query is a single {@code SELECT} without any of the forbidden clauses.
+     */
+    static String singleSelect(String query, String feature, List<String> forbiddenClauses) {
+        String statement = query.strip();
+        while (statement.endsWith(";")) {
+            statement = statement.substring(0, statement.length() - 1).strip();
+        }
+
+        if (!SELECT.matcher(statement).find() || statement.contains(";")) {
+            throw new IllegalArgumentException(feature + " requires a single SELECT statement, got: " + query);
+        }
+
+        for (String clause : forbiddenClauses) {
+            if (Pattern.compile("\\b" + clause + "\\b", Pattern.CASE_INSENSITIVE).matcher(statement).find()) {
+                throw new IllegalArgumentException("`" + clause + "` is not supported with " + feature);
+            }
+        }
+
+        return statement;
+    }
+
+    /**
+     * Quotes a table name with {@code ⟨⟩} unless it is a plain identifier.
+     */
+    static String identifier(String table) {
+        return PLAIN_IDENTIFIER.matcher(table).matches() ? table : "⟨" + table.replace("⟩", "\\⟩") + "⟩";
+    }
+
+    /**
+     * Strips the {@code ⟨⟩} or backtick quotes of the key of a record id, if any.
+     */
+    static String unquoteKey(String key) {
+        if (key.length() >= 2 && ((key.startsWith("⟨") && key.endsWith("⟩")) || (key.startsWith("`") && key.endsWith("`")))) {
+            return key.substring(1, key.length() - 1);
+        }
+        return key;
+    }
+
+    /**
+     * Whether the key of a record id, as written before unquoting, is an integer, which SurrealDB stores and orders as a
+     * number, before any string key. A quoted key such as {@code ⟨42⟩} is a string.
+     */
+    static boolean isNumericKey(String key) {
+        return NUMERIC_KEY.matcher(key).matches();
+    }
+
+    /**
+     * Whether every statement of the query is a {@code SELECT} or {@code INFO} without any writing keyword, even in a
+     * sub-query. Errs on the side of {@code false}, for instance when a string literal contains such a keyword.
+     */
+    static boolean isReadOnly(String query) {
+        for (String statement : query.split(";")) {
+            if (statement.isBlank()) {
+                continue;
+            }
+
+            if (!READ_STATEMENT.matcher(statement).find() || WRITE_KEYWORD.matcher(statement).find()) {
+                return false;
+            }
+        }
+
+        return !query.isBlank();
+    }
+
+    /**
+     * Converts rendered parameters to plain JSON values, such as ISO strings for dates, which Gson can serialize.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parameters(Map<String, ?> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        return JacksonMapper.ofJson().convertValue(parameters, HashMap.class);
+    }
+
+    /**
+     * Adds a condition to the {@code WHERE} clause of a single {@code SELECT}, creating the clause when missing and
+     * keeping the clauses that follow it ({@code ORDER BY}, {@code LIMIT}...) in place.
+     */
+    static String withCondition(String statement, String condition) {
+        Matcher from = FROM.matcher(statement);
+        int fromEnd = from.find() ? from.end() : 0;
+
+        Matcher where = WHERE.matcher(statement);
+        int whereEnd = where.find(fromEnd) ? where.end() : -1;
+
+        Matcher trailing = TRAILING_CLAUSE.matcher(statement);
+        int tail = trailing.find(Math.max(whereEnd, fromEnd)) ? trailing.start() : statement.length();
+
+        String head = statement.substring(0, tail).strip();
+        String rest = statement.substring(tail).strip();
+
+        String filtered = whereEnd >= 0
+            ? head.substring(0, whereEnd) + " (" + head.substring(whereEnd).strip() + ") AND " + condition
+            : head + " WHERE " + condition;
+
+        return rest.isEmpty() ? filtered : filtered + " " + rest;
+    }
+}
@@ -0,0 +1,351 @@
+package io.kestra.plugin.surrealdb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.kestra.core.exceptions.IllegalVariableEvaluationException;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.serializers.JacksonMapper;
+
+/**
+ * Worker-wide LRU cache of compiled query templates, so that a {@code ForEach} running the same query thousands of
+ * times parses it once and then only looks up the values of its variables, without evaluating the template.
+ * <p>
+ * A plain variable lookup filling a whole quoted string, such as {@code '{{ inputs.name }}'}, is compiled to a
+ * parameter bound to its value as a string. As SurrealDB would read escapes in the literal, or parse it as a record id,
+ * a datetime or a uuid, only values made of letters, digits, spaces, {@code _}, {@code -}, {@code .} and {@code @}
+ * are bound; any other value is rendered, so that the query means what the rendered template does. Strings of the
+ * {@code parameters} map are compiled to text and lookups the same way. Templates with tags, comments, filters,
+ * function calls or lookups elsewhere, such as a table name or a number, are rendered on every run, as are runs where
+ * a variable is missing or holds a value the compiled form cannot bind.
+ */
+final class TemplateCache {
+    static final int MAX_ENTRIES = 1_000;
+    static final String PARAMETER_PREFIX = "kestra_template_";
+
+    private static final TemplateCache INSTANCE = new TemplateCache(MAX_ENTRIES);
+    private static final Pattern EXPRESSION = Pattern.compile("\\{\\{(.*?)}}", Pattern.DOTALL);
+    private static final Pattern LOOKUP = Pattern.compile("\\s*([A-Za-z_]\\w*(?:\\.[A-Za-z_]\\w*)*)\\s*");
+    private static final Pattern COMMENT = Pattern.compile("--|//|/\\*|#");
+    private static final Pattern PLAIN_TEXT = Pattern.compile("[\\p{L}\\p{N} _.@-]*");
+    private static final Pattern PARSED_TEXT = Pattern.compile("\\d{4}-\\d{2}-\\d{2}|\\p{XDigit}{8}-\\p{XDigit}{4}-\\p{XDigit}{4}-\\p{XDigit}{4}-\\p{XDigit}{12}");
+    private static final Object NOT_COMPILABLE = new Object();
+
+    private final Map<String, Object> entries;
+
+    TemplateCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    static TemplateCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Renders the query and its parameters, the parameters its compiled form binds included.
+     */
+    Rendered render(RunContext runContext, String template, Property<Map<String, Object>> parameters) throws IllegalVariableEvaluationException {
+        Map<String, Object> variables = runContext.getVariables();
+        Map<String, Object> parametersValue = parameters(runContext, variables, parameters);
+
+        if (template == null || (!template.contains("{{") && !template.contains("{%") && !template.contains("{#"))) {
+            return new Rendered(template, parametersValue);
+        }
+
+        Object compiled = compiled("query:" + template, () -> compileQuery(template));
+        Map<String, Object> bound = compiled instanceof CompiledQuery query ? query.bind(variables) : null;
+        if (bound == null) {
+            QueryMetrics.report(runContext, Counter.of("template.cache.miss", 1));
+            return new Rendered(runContext.render(template), parametersValue);
+        }
+
+        QueryMetrics.report(runContext, Counter.of("template.cache.hit", 1));
+        parametersValue.putAll(bound);
+        return new Rendered(((CompiledQuery) compiled).statement(), parametersValue);
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> parameters(RunContext runContext, Map<String, Object> variables, Property<Map<String, Object>> parameters) throws IllegalVariableEvaluationException {
+        if (parameters == null) {
+            return new HashMap<>();
+        }
+
+        Object raw = raw(parameters);
+        if (raw instanceof Map<?, ?> map) {
+            String json = JacksonMapper.ofJson().valueToTree(map).toString();
+            if (!json.contains("{{") && !json.contains("{%") && !json.contains("{#")) {
+                // values such as the bounds of an Export partition, not worth an entry
+                return SurrealQL.parameters((Map<String, ?>) map);
+            }
+
+            Object compiled = compiled("parameters:" + json, () -> compileParameter(map));
+            Object bound = compiled == NOT_COMPILABLE ? null : substitute(compiled, variables);
+            if (bound instanceof Map<?, ?> boundMap) {
+                return SurrealQL.parameters((Map<String, ?>) boundMap);
+            }
+        }
+
+        return SurrealQL.parameters(runContext.render(parameters).asMap(String.class, Object.class));
+    }
+
+    /**
+     * The parameters as written in the flow, before any rendering.
+     */
+    private static Object raw(Property<Map<String, Object>> parameters) {
+        Object raw = JacksonMapper.ofJson().convertValue(parameters, Object.class);
+        if (raw instanceof String expression && expression.strip().startsWith("{") && !expression.contains("{%") && !expression.contains("{#")) {
+            try {
+                return JacksonMapper.ofJson().readValue(expression, Object.class);
+            } catch (JsonProcessingException e) {
+                // an expression such as {{ inputs.parameters }} rather than a JSON object
+                return null;
+            }
+        }
+        return raw;
+    }
+
+    private Object compiled(String key, Supplier<Object> compiler) {
+        synchronized (entries) {
+            Object compiled = entries.get(key);
+            if (compiled != null) {
+                return compiled;
+            }
+        }
+
+        Object compiled = compiler.get();
+        synchronized (entries) {
+            entries.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Replaces every lookup of the query by a parameter, unless one of its expressions is not a plain lookup filling a
+     * whole quoted string.
+     */
+    private static Object compileQuery(String template) {
+        if (template.contains("{%") || template.contains("{#") || COMMENT.matcher(template).find()) {
+            // a quote inside a comment would be taken for the start of a string
+            return NOT_COMPILABLE;
+        }
+
+        StringBuilder statement = new StringBuilder();
+        List<Binding> bindings = new ArrayList<>();
+        int position = 0;
+
+        Matcher expression = EXPRESSION.matcher(template);
+        while (expression.find()) {
+            Matcher lookup = LOOKUP.matcher(expression.group(1));
+            if (!lookup.matches()) {
+                return NOT_COMPILABLE;
+            }
+
+            // only '{{ a }}' is a value: neither '{{ a }}-{{ b }}', r'{{ a }}' nor a lookup outside quotes, such as a table name
+            String text = template.substring(position, expression.start());
+            char quote = quoteAfter(text);
+            char next = expression.end() < template.length() ? template.charAt(expression.end()) : 0;
+            String before = text.substring(0, Math.max(0, text.length() - 1));
+            if (quote == 0 || quoteAfter(before) != 0 || next != quote || (!before.isEmpty() && isWordPart(before.charAt(before.length() - 1)))) {
+                return NOT_COMPILABLE;
+            }
+
+            String name = PARAMETER_PREFIX + bindings.size();
+            statement.append(before).append('$').append(name);
+            bindings.add(new Binding(name, lookup.group(1).split("\\.")));
+            position = expression.end() + 1;
+        }
+
+        String tail = template.substring(position);
+        if (tail.contains("{{") || tail.contains("}}")) {
+            return NOT_COMPILABLE;
+        }
+
+        return new CompiledQuery(statement.append(tail).toString(), bindings);
+    }
+
+    /**
+     * Keeps literal values and splits strings into text and lookups, unless a string holds anything else.
+     */
+    private static Object compileParameter(Object raw) {
+        if (raw instanceof Map<?, ?> map) {
+            Map<String, Object> compiled = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object value = compileParameter(entry.getValue());
+                if (value == NOT_COMPILABLE) {
+                    return NOT_COMPILABLE;
+                }
+                compiled.put(String.valueOf(entry.getKey()), value);
+            }
+            return compiled;
+        }
+
+        if (raw instanceof List<?> list) {
+            List<Object> compiled = new ArrayList<>(list.size());
+            for (Object item : list) {
+                Object value = compileParameter(item);
+                if (value == NOT_COMPILABLE) {
+                    return NOT_COMPILABLE;
+                }
+                compiled.add(value);
+            }
+            return compiled;
+        }
+
+        if (!(raw instanceof String string) || (!string.contains("{{") && !string.contains("{%") && !string.contains("{#"))) {
+            return raw;
+        }
+        if (string.contains("{%") || string.contains("{#")) {
+            return NOT_COMPILABLE;
+        }
+
+        List<Object> parts = new ArrayList<>();
+        int position = 0;
+        Matcher expression = EXPRESSION.matcher(string);
+        while (expression.find()) {
+            Matcher lookup = LOOKUP.matcher(expression.group(1));
+            if (!lookup.matches()) {
+                return NOT_COMPILABLE;
+            }
+            parts.add(string.substring(position, expression.start()));
+            parts.add(lookup.group(1).split("\\."));
+            position = expression.end();
+        }
+        parts.add(string.substring(position));
+
+        return new Concatenation(parts);
+    }
+
+    /**
+     * Replaces the lookups of compiled parameters by the text the renderer would print, or returns {@code null} when
+     * one of them cannot be.
+     */
+    private static Object substitute(Object compiled, Map<String, Object> variables) {
+        if (compiled instanceof Map<?, ?> map) {
+            Map<String, Object> value = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object item = substitute(entry.getValue(), variables);
+                if (item == null && entry.getValue() != null) {
+                    return null;
+                }
+                value.put(String.valueOf(entry.getKey()), item);
+            }
+            return value;
+        }
+
+        if (compiled instanceof List<?> list) {
+            List<Object> value = new ArrayList<>(list.size());
+            for (Object element : list) {
+                Object item = substitute(element, variables);
+                if (item == null && element != null) {
+                    return null;
+                }
+                value.add(item);
+            }
+            return value;
+        }
+
+        if (compiled instanceof Concatenation concatenation) {
+            StringBuilder value = new StringBuilder();
+            for (Object part : concatenation.parts()) {
+                String text = part instanceof String[] path ? text(lookup(variables, path)) : (String) part;
+                if (text == null) {
+                    return null;
+                }
+                value.append(text);
+            }
+            return value.toString();
+        }
+
+        return compiled;
+    }
+
+    /**
+     * Quote of the string left open at the end of the text, if any.
+     */
+    private static char quoteAfter(String text) {
+        char quote = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            }
+        }
+        return quote;
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static Object lookup(Map<String, Object> variables, String[] path) {
+        Object value = variables;
+        for (String segment : path) {
+            if (!(value instanceof Map<?, ?> map) || !map.containsKey(segment)) {
+                return null;
+            }
+            value = map.get(segment);
+        }
+        return value;
+    }
+
+    /**
+     * Text the renderer prints for a value, or {@code null} for values it may print otherwise.
+     */
+    private static String text(Object value) {
+        return value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Boolean ? value.toString() : null;
+    }
+
+    record Rendered(String query, Map<String, Object> parameters) {
+    }
+
+    private record Binding(String name, String[] path) {
+    }
+
+    private record Concatenation(List<Object> parts) {
+    }
+
+    private record CompiledQuery(String statement, List<Binding> bindings) {
+        /**
+         * Values of the parameters of the statement, or {@code null} when one of them cannot be bound.
+         */
+        Map<String, Object> bind(Map<String, Object> variables) {
+            Map<String, Object> bound = new HashMap<>();
+            for (Binding binding : bindings) {
+                String value = text(lookup(variables, binding.path()));
+                // SurrealDB reads escapes in a string literal, and may parse it as a record id, a datetime or a uuid
+                if (value == null || !PLAIN_TEXT.matcher(value).matches() || PARSED_TEXT.matcher(value).matches()) {
+                    return null;
+                }
+                bound.put(binding.name(), value);
+            }
+            return bound;
+        }
+    }
+}
@@ -12,6 +12,8 @@ import io.kestra.core.models.annotations.Plugin;
 import io.kestra.core.models.conditions.ConditionContext;
 import io.kestra.core.models.executions.Execution;
 import io.kestra.core.models.executions.ExecutionTrigger;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.executions.metrics.Timer;
 import io.kestra.core.models.flows.State;
 import io.kestra.core.models.property.Property;
 import io.kestra.core.models.tasks.common.FetchType;
@@ -19,6 +21,9 @@ import io.kestra.core.models.triggers.AbstractTrigger;
 import io.kestra.core.models.triggers.PollingTriggerInterface;
 import io.kestra.core.models.triggers.TriggerContext;
 import io.kestra.core.runners.RunContext;
+import io.kestra.core.storages.kv.KVMetadata;
+import io.kestra.core.storages.kv.KVValue;
+import io.kestra.core.storages.kv.KVValueAndMetadata;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
@@ -71,7 +76,7 @@ import io.kestra.core.models.annotations.PluginProperty;
         )
     }
 )
-public class Trigger extends AbstractTrigger implements PollingTriggerInterface, SurrealDBConnectionInterface, QueryInterface {
+public class Trigger extends AbstractTrigger implements PollingTriggerInterface, SurrealDBConnectionInterface, PooledConnectionInterface, QueryInterface {
 
     @Builder.Default
     private Property<Boolean> useTls = Property.ofValue(false);
@@ -99,39 +104,111 @@ public class Trigger extends AbstractTrigger implements PollingTriggerInterface,
     @Builder.Default
     private int connectionTimeout = 60;
 
+    @Schema(
+        title = "Reuse the connection between polls",
+        description = "Keep the authenticated connection in the worker-wide pool between polls instead of opening, signing in and selecting the database on every poll; default is `true`. " +
+            "A connection found closed or not answering a `ping` is replaced on the next poll. " +
+            "Earlier versions of the trigger defaulted to `false` and opened a new connection on every poll; set `pooled: false` to keep that behavior."
+    )
+    @Builder.Default
+    private Property<Boolean> pooled = Property.ofValue(true);
+
+    @Builder.Default
+    private Property<Integer> maxPoolSize = Property.ofValue(4);
+
+    @Builder.Default
+    private Property<Duration> poolIdleTimeout = Property.ofValue(Duration.ofMinutes(5));
+
     @NotNull
     @Builder.Default
     protected Property<FetchType> fetchType = Property.ofValue(FetchType.STORE);
 
     @Builder.Default
-    protected Property<Map<String, String>> parameters = Property.ofValue(new HashMap<>());
+    protected Property<Map<String, Object>> parameters = Property.ofValue(new HashMap<>());
 
     @NotBlank
     protected String query;
 
+    @Builder.Default
+    protected Property<Pagination> pagination = Property.ofValue(Pagination.NONE);
+
+    @Builder.Default
+    protected Property<Integer> pageSize = Property.ofValue(10_000);
+
     @Schema(
         title = "Polling interval",
-        description = "Time between query executions; default 1 minute."
+        description = "Time between query executions; default 1 minute. With `pooled` enabled, a poll only sends the query over the kept connection, so intervals of a few seconds are cheap."
     )
     @Builder.Default
     @PluginProperty(group = "execution")
     protected final Duration interval = Duration.ofMinutes(1);
 
+    @Schema(
+        title = "Watermark field",
+        description = "Monotonic field, such as a creation timestamp or an ordered id, used to only read new rows. " +
+            "The highest value seen is kept in the namespace KV store and each poll adds `WHERE <field> > <last value>` to the query, so it must be a single `SELECT` returning this field. " +
+            "Rows sharing the last value but written after the poll are not read, so the field must strictly increase."
+    )
+    @PluginProperty(group = "processing")
+    protected Property<String> watermarkField;
+
+    @Schema(
+        title = "Maximum rows per execution",
+        description = "Reads at most this number of rows per poll, in ascending order of `watermarkField`, which is required. " +
+            "A backlog is then split into several executions of at most `maxRows` rows, one per poll, instead of a single execution carrying every row. " +
+            "The query must not have its own `ORDER BY`, `LIMIT` or `START` clause."
+    )
+    @PluginProperty(group = "processing")
+    protected Property<Integer> maxRows;
+
     @Override
     public Optional<Execution> evaluate(ConditionContext conditionContext, TriggerContext context) throws Exception {
         RunContext runContext = conditionContext.getRunContext();
         Logger logger = runContext.logger();
 
-        Query.Output queryOutput = Query.builder()
+        String renderedWatermarkField = runContext.render(watermarkField).as(String.class).orElse(null);
+        Integer renderedMaxRows = runContext.render(maxRows).as(Integer.class).orElse(null);
+        if (renderedMaxRows != null && renderedWatermarkField == null) {
+            throw new IllegalArgumentException("`maxRows` requires `watermarkField`, so that the next poll resumes after the last row read");
+        }
+        if (renderedMaxRows != null && renderedMaxRows <= 0) {
+            throw new IllegalArgumentException("`maxRows` must be positive, got " + renderedMaxRows);
+        }
+
+        Watermark watermark = renderedWatermarkField == null ? null : new Watermark(renderedWatermarkField, readWatermark(runContext, context));
+
+        long start = System.nanoTime();
+        Query.QueryBuilder<?, ?> queryBuilder = Query.builder()
             .host(host)
+            .port(port)
+            .useTls(useTls)
+            .connectionTimeout(connectionTimeout)
             .namespace(namespace)
             .database(database)
             .query(query)
-            .parameters(parameters)
+            .parameters(parameters);
+
+        if (watermark != null) {
+            Map<String, Object> renderedParameters = SurrealQL.parameters(runContext.render(parameters).asMap(String.class, Object.class));
+            queryBuilder
+                .query(watermark.apply(runContext.render(query), renderedMaxRows))
+                .parameters(Property.ofValue(watermark.parameters(renderedParameters)));
+        }
+
+        Query.Output queryOutput = queryBuilder
             .fetchType(fetchType)
+            .pagination(pagination)
+            .pageSize(pageSize)
             .password(password)
             .username(username)
-            .build().run(runContext);
+            .pooled(pooled)
+            .maxPoolSize(maxPoolSize)
+            .poolIdleTimeout(Property.ofValue(pollIdleTimeout(runContext)))
+            .build().run(runContext, watermark != null ? watermark : row -> {});
+
+        // the inner query reports connect, server, decode and upload metrics on the same run context
+        QueryMetrics.report(runContext, Timer.of("poll.duration", Duration.ofNanos(System.nanoTime() - start)));
+        QueryMetrics.report(runContext, Counter.of("poll.rows", queryOutput.getSize()));
 
         logger.debug("Found '{}' rows from '{}'", queryOutput.getSize(), runContext.render(this.query));
 
@@ -139,6 +216,13 @@ public class Trigger extends AbstractTrigger implements PollingTriggerInterface,
             return Optional.empty();
         }
 
+        if (watermark != null && watermark.value() != null) {
+            runContext.namespaceKv(context.getNamespace()).put(
+                watermarkKey(context),
+                new KVValueAndMetadata(new KVMetadata("Last value of '" + renderedWatermarkField + "' read by the trigger", (Duration) null), watermark.value())
+            );
+        }
+
         ExecutionTrigger executionTrigger = ExecutionTrigger.of(this, queryOutput);
 
         Execution execution = Execution.builder()
@@ -152,4 +236,24 @@ public class Trigger extends AbstractTrigger implements PollingTriggerInterface,
         return Optional.of(execution);
     }
 
+    /**
+     * Keeps the pooled connection open at least across two polls, so it is not evicted between them.
+     */
+    private Duration pollIdleTimeout(RunContext runContext) throws Exception {
+        Duration idleTimeout = runContext.render(poolIdleTimeout).as(Duration.class).orElseThrow();
+        Duration twoIntervals = interval.multipliedBy(2);
+        return idleTimeout.compareTo(twoIntervals) >= 0 ? idleTimeout : twoIntervals;
+    }
+
+    private static Object readWatermark(RunContext runContext, TriggerContext context) throws Exception {
+        return runContext.namespaceKv(context.getNamespace())
+            .getValue(watermarkKey(context))
+            .map(KVValue::value)
+            .orElse(null);
+    }
+
+    private static String watermarkKey(TriggerContext context) {
+        return "surrealdb-watermark-" + context.getFlowId() + "-" + context.getTriggerId();
+    }
+
 }
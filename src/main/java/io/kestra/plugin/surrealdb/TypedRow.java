@@ -0,0 +1,138 @@
+package io.kestra.plugin.surrealdb;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Row type given to the driver, so that its Gson instance decodes SurrealDB values straight to native Java types
+ * instead of {@code LinkedTreeMap}s of {@code Double}s.
+ * <p>
+ * Objects become {@link LinkedHashMap}s, integers {@link Long}s (or {@link BigDecimal}s past its range), other numbers
+ * {@link BigDecimal}s and datetimes {@link Instant}s. JSON has no datetime type, so only strings in the exact form
+ * SurrealDB writes datetimes, UTC with a {@code Z} suffix, are read as instants: a string field holding such a value is
+ * read as an instant too. Record ids stay {@code table:id} strings. Rows that are not objects, as returned by
+ * {@code SELECT VALUE} or {@code RETURN}, are decoded the same way, which is why the class is only a marker and never
+ * instantiated. Values are written back the other way, instants as the same ISO-8601 strings.
+ */
+@JsonAdapter(TypedRow.Adapter.class)
+final class TypedRow {
+    private static final Adapter ADAPTER = new Adapter();
+    private static final Pattern DATETIME = Pattern.compile("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(\\.\\d{1,9})?Z");
+
+    private TypedRow() {
+    }
+
+    /**
+     * Decodes a JSON tree received outside of the driver the same way as query rows.
+     */
+    static Object decode(JsonElement element) {
+        return ADAPTER.fromJsonTree(element);
+    }
+
+    static final class Adapter extends TypeAdapter<Object> {
+        @Override
+        public void write(JsonWriter out, Object value) throws IOException {
+            switch (value) {
+                case null -> out.nullValue();
+                case Map<?, ?> object -> {
+                    out.beginObject();
+                    for (Map.Entry<?, ?> entry : object.entrySet()) {
+                        out.name(String.valueOf(entry.getKey()));
+                        write(out, entry.getValue());
+                    }
+                    out.endObject();
+                }
+                case Collection<?> array -> {
+                    out.beginArray();
+                    for (Object item : array) {
+                        write(out, item);
+                    }
+                    out.endArray();
+                }
+                case Number number -> out.value(number);
+                case Boolean bool -> out.value(bool);
+                default -> out.value(value.toString());
+            }
+        }
+
+        @Override
+        public Object read(JsonReader in) throws IOException {
+            return switch (in.peek()) {
+                case BEGIN_OBJECT -> {
+                    Map<String, Object> object = new LinkedHashMap<>();
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        object.put(in.nextName(), read(in));
+                    }
+                    in.endObject();
+                    yield object;
+                }
+                case BEGIN_ARRAY -> {
+                    List<Object> array = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        array.add(read(in));
+                    }
+                    in.endArray();
+                    yield array;
+                }
+                case STRING -> string(in.nextString());
+                case NUMBER -> number(in.nextString());
+                case BOOLEAN -> in.nextBoolean();
+                case NULL -> {
+                    in.nextNull();
+                    yield null;
+                }
+                default -> throw new IllegalStateException("Unexpected JSON token " + in.peek() + " at " + in.getPath());
+            };
+        }
+
+        private static Object number(String number) {
+            boolean integral = true;
+            for (int i = 0; i < number.length() && integral; i++) {
+                char c = number.charAt(i);
+                integral = c != '.' && c != 'e' && c != 'E';
+            }
+
+            if (integral && number.length() < 19) {
+                return Long.parseLong(number);
+            }
+
+            BigDecimal decimal = new BigDecimal(number);
+            if (integral) {
+                try {
+                    return decimal.longValueExact();
+                } catch (ArithmeticException e) {
+                    return decimal;
+                }
+            }
+            return decimal;
+        }
+
+        private static Object string(String string) {
+            if (string.length() < 20 || string.length() > 30 || string.charAt(4) != '-' || string.charAt(10) != 'T' || !DATETIME.matcher(string).matches()) {
+                return string;
+            }
+
+            try {
+                return Instant.parse(string);
+            } catch (DateTimeParseException e) {
+                return string;
+            }
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package io.kestra.plugin.surrealdb;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+
+import com.surrealdb.driver.model.QueryResult;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.executions.metrics.Timer;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.serializers.FileSerde;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+@SuperBuilder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@Schema(
+    title = "Upsert rows into a SurrealDB table",
+    description = "Reads an ION file from internal storage as a stream and upserts each row into the record of `table` whose key is the value of `keyField`, `chunk` rows per request. " +
+        "Within a chunk, rows sharing a key are collapsed to the last one read. Rows are spread over `maxInFlight` lanes by key, each lane sending its requests one after the other, " +
+        "so writes to the same record are applied in file order while several requests are in flight on the connection."
+)
+@Plugin(
+    examples = {
+        @Example(
+            title = "Mirror the changes captured by a previous task into a SurrealDB table.",
+            full = true,
+            code = """
+                id: surrealdb_upsert
+                namespace: company.team
+
+                tasks:
+                  - id: changes
+                    type: io.kestra.plugin.core.http.Download
+                    uri: https://huggingface.co/datasets/kestra/datasets/raw/main/ion/customers.ion
+
+                  - id: upsert
+                    type: io.kestra.plugin.surrealdb.Upsert
+                    host: localhost
+                    username: surreal_user
+                    password: "{{ secret('SURREALDB_PASSWORD') }}"
+                    database: surreal_db
+                    namespace: surreal_namespace
+                    from: "{{ outputs.changes.uri }}"
+                    table: customer
+                    keyField: customer_id
+                    chunk: 1000
+                    maxInFlight: 4
+                """
+        )
+    }
+)
+public class Upsert extends SurrealDBConnection implements RunnableTask<Upsert.Output>, AdaptiveBatchInterface, RequestTimeoutInterface {
+    static final String ROWS_PARAMETER = "kestra_rows";
+    static final String TABLE_PARAMETER = "kestra_table";
+
+    @Schema(
+        title = "Source file URI",
+        description = "Internal storage URI of an ION file, one row per record."
+    )
+    @NotNull
+    @PluginProperty(internalStorageURI = true, group = "main")
+    private Property<String> from;
+
+    @Schema(
+        title = "Target table"
+    )
+    @NotNull
+    @PluginProperty(group = "main")
+    private Property<String> table;
+
+    @Schema(
+        title = "Key field",
+        description = "Field holding the key of the record to upsert, either the key itself or a record id such as `customer:42`. " +
+            "A key keeps its type: a string made of digits such as `007` targets a string id, a number a numeric id; only the key of a record id is read as a number, when it is an integer written without leading zeros. " +
+            "The `id` field is never written as content."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "main")
+    private Property<String> keyField = Property.ofValue("id");
+
+    @Schema(
+        title = "Write mode",
+        description = "`MERGE` updates the given fields and keeps the others, `CONTENT` replaces the whole record by the row."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Mode> mode = Property.ofValue(Mode.MERGE);
+
+    @Schema(
+        title = "Rows per request",
+        description = "Also the window in which rows sharing a key are collapsed to the last one. Initial number of rows per request when `targetLatency` is set."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> chunk = Property.ofValue(1000);
+
+    @Schema(
+        title = "Requests in flight",
+        description = "Number of key lanes, each with at most one request sent on the connection and not yet answered."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> maxInFlight = Property.ofValue(4);
+
+    @Schema(
+        title = "Retries per request",
+        description = "Number of times a request that lost its connection is sent again over a new connection, with an exponential backoff; upserts are idempotent so retrying is safe. " +
+            "Statement errors are not retried, and neither are requests left unanswered past `requestTimeout`: they fail the task, as the server may still apply them after a later request for the same key."
+    )
+    @NotNull
+    @Builder.Default
+    @PluginProperty(group = "processing")
+    private Property<Integer> maxRetries = Property.ofValue(3);
+
+    private Property<Duration> targetLatency;
+
+    @Builder.Default
+    private Property<Integer> maxChunk = Property.ofValue(10_000);
+
+    @Builder.Default
+    private Property<Duration> requestTimeout = Property.ofValue(Duration.ofMinutes(5));
+
+    @Override
+    public Upsert.Output run(RunContext runContext) throws Exception {
+        Logger logger = runContext.logger();
+
+        URI fromUri = URI.create(runContext.render(from).as(String.class).orElseThrow());
+        String tableValue = runContext.render(table).as(String.class).orElseThrow();
+        String keyFieldValue = runContext.render(keyField).as(String.class).orElseThrow();
+        AdaptiveBatch batchSize = AdaptiveBatch.of(runContext, runContext.render(chunk).as(Integer.class).orElseThrow(), this);
+        int lanes = runContext.render(maxInFlight).as(Integer.class).orElseThrow();
+        int maxRetriesValue = runContext.render(maxRetries).as(Integer.class).orElseThrow();
+        String statement = statement(runContext.render(mode).as(Mode.class).orElseThrow());
+        Duration requestTimeoutValue = runContext.render(requestTimeout).as(Duration.class).orElseThrow();
+
+        AtomicLong rowCount = new AtomicLong();
+        AtomicLong collapsed = new AtomicLong();
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger retries = new AtomicInteger();
+        long start = System.nanoTime();
+
+        long written;
+        AtomicReference<SurrealDBClient> client = new AtomicReference<>(super.connect(runContext));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(runContext.storage().getFile(fromUri)), FileSerde.BUFFER_SIZE)) {
+            try {
+                written = FileSerde.readAll(reader)
+                    .map(record -> change(record, keyFieldValue, tableValue))
+                    .doOnNext(change -> rowCount.incrementAndGet())
+                    .groupBy(change -> Math.floorMod(change.key().hashCode(), lanes))
+                    .flatMap(
+                        lane -> batchSize.batches(lane)
+                            .map(window -> {
+                                List<Map<String, Object>> rows = collapse(window);
+                                collapsed.addAndGet(window.size() - rows.size());
+                                return rows;
+                            })
+                            // no prefetch: the next batch of a lane is only cut once the previous one is written, with the size it left
+                            .concatMap(rows -> {
+                                Map<String, Object> parameters = SurrealQL.parameters(Map.of(TABLE_PARAMETER, tableValue, ROWS_PARAMETER, rows));
+                                return Mono.fromCallable(() -> connection(runContext, client))
+                                    .flatMap(connection -> {
+                                        long sent = System.nanoTime();
+                                        requests.incrementAndGet();
+                                        return Mono.fromFuture(() -> connection.queryAsync(statement, parameters))
+                                            .timeout(requestTimeoutValue, Mono.error(() -> new TimeoutException("SurrealDB did not answer within the request timeout of " + requestTimeoutValue)))
+                                            .doOnError(TimeoutException.class, e -> {
+                                                // the unanswered request may still be applied after a later one of its lane: give up on the connection
+                                                connection.invalidate();
+                                                connection.close();
+                                            })
+                                            .map(results -> {
+                                                checkStatements(results);
+                                                Duration serverTime = serverTime(results);
+                                                batchSize.onSuccess(serverTime != null ? serverTime : Duration.ofNanos(System.nanoTime() - sent));
+                                                return (long) rows.size();
+                                            })
+                                            .doOnError(batchSize::onFailure);
+                                    })
+                                    .retryWhen(AdaptiveBatch.backoff(maxRetriesValue)
+                                        .filter(throwable -> !(throwable instanceof TimeoutException) && isConnectionFailure(throwable, client.get()))
+                                        .doBeforeRetry(signal -> retries.incrementAndGet()));
+                            }, 0),
+                        lanes
+                    )
+                    .reduce(0L, Long::sum)
+                    .blockOptional()
+                    .orElse(0L);
+            } catch (RuntimeException e) {
+                client.get().invalidate();
+                Throwable cause = Exceptions.unwrap(e);
+                cause = Exceptions.isRetryExhausted(cause) ? cause.getCause() : cause;
+                throw cause instanceof Exception exception ? exception : e;
+            }
+        } finally {
+            client.get().close();
+        }
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        runContext.metric(Counter.of("records", rowCount.get()));
+        runContext.metric(Counter.of("records.written", written));
+        runContext.metric(Counter.of("records.collapsed", collapsed.get()));
+        runContext.metric(Counter.of("requests", requests.get()));
+        runContext.metric(Counter.of("retries", retries.get()));
+        runContext.metric(Timer.of("duration", duration));
+        batchSize.report(runContext);
+
+        logger.info("Upserted {} records from {} rows in {} requests", written, rowCount.get(), requests.get());
+
+        return Output.builder()
+            .rowCount(rowCount.get())
+            .written(written)
+            .collapsed(collapsed.get())
+            .requests(requests.get())
+            .retries(retries.get())
+            .batchSize(batchSize.size())
+            .smallestBatchSize(batchSize.smallest())
+            .largestBatchSize(batchSize.largest())
+            .build();
+    }
+
+    static String statement(Mode mode) {
+        return "FOR $row IN $" + ROWS_PARAMETER + " { UPSERT type::thing($" + TABLE_PARAMETER + ", $row.key) " + mode.name() + " $row.content; }";
+    }
+
+    /**
+     * Keeps the last row of each key of the window, in the order of that last row.
+     */
+    private static List<Map<String, Object>> collapse(List<Change> window) {
+        LinkedHashMap<Object, Map<String, Object>> lastByKey = new LinkedHashMap<>();
+        for (Change change : window) {
+            lastByKey.remove(change.key());
+            lastByKey.put(change.key(), change.content());
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>(lastByKey.size());
+        lastByKey.forEach((key, content) -> rows.add(Map.of("key", key, "content", content)));
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Change change(Object record, String keyField, String table) {
+        if (!(record instanceof Map<?, ?> map)) {
+            throw new IllegalArgumentException("Expected a row, got: " + record);
+        }
+
+        Map<String, Object> content = new LinkedHashMap<>((Map<String, Object>) map);
+        Object key = "id".equals(keyField) ? content.remove("id") : content.get(keyField);
+        content.remove("id");
+        if (key == null) {
+            throw new IllegalArgumentException("Row without `" + keyField + "`: " + record);
+        }
+
+        return new Change(key(key, table), content);
+    }
+
+    /**
+     * Keeps the type of the key, integers being widened to {@code long} so that {@code 42} read as an int or a long
+     * collapses to the same record. A record id of {@code table} is stripped of its table, and its key read as a number
+     * only when it is an integer that prints back the same, so that {@code customer:42} and {@code 42} target the same
+     * record while {@code "007"} and {@code "42"} stay strings.
+     */
+    static Object key(Object value, String table) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number) {
+            return value;
+        }
+
+        String key = value.toString();
+        if (!key.startsWith(table + ":")) {
+            return key;
+        }
+
+        String rawKey = key.substring(table.length() + 1);
+        if (SurrealQL.isNumericKey(rawKey)) {
+            try {
+                long number = Long.parseLong(rawKey);
+                if (Long.toString(number).equals(rawKey)) {
+                    return number;
+                }
+            } catch (NumberFormatException e) {
+                // beyond the range of an integer id, kept as a string key
+            }
+        }
+
+        return SurrealQL.unquoteKey(rawKey);
+    }
+
+    private static Duration serverTime(List<QueryResult<Object>> results) {
+        Duration total = Duration.ZERO;
+        for (QueryResult<Object> result : results) {
+            Duration statementTime = QueryMetrics.parseDuration(result.getTime());
+            if (statementTime == null) {
+                return null;
+            }
+            total = total.plus(statementTime);
+        }
+        return total;
+    }
+
+    private static void checkStatements(List<QueryResult<Object>> results) {
+        for (QueryResult<Object> result : results) {
+            if (result.getStatus() != null && !"OK".equals(result.getStatus())) {
+                throw new IllegalStateException("Upsert failed with status " + result.getStatus());
+            }
+        }
+    }
+
+    private record Change(Object key, Map<String, Object> content) {
+    }
+
+    public enum Mode {
+        MERGE,
+        CONTENT
+    }
+
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(
+            title = "Number of rows read"
+        )
+        private Long rowCount;
+
+        @Schema(
+            title = "Number of upserts sent",
+            description = "Rows read minus the rows collapsed into a later row of the same key."
+        )
+        private Long written;
+
+        @Schema(
+            title = "Number of rows collapsed into a later row of the same key"
+        )
+        private Long collapsed;
+
+        @Schema(
+            title = "Number of requests sent, retries included"
+        )
+        private Integer requests;
+
+        @Schema(
+            title = "Number of request retries"
+        )
+        private Integer retries;
+
+        @Schema(
+            title = "Batch size at the end of the run",
+            description = "Differs from `chunk` only when `targetLatency` is set."
+        )
+        private Integer batchSize;
+
+        @Schema(
+            title = "Smallest batch size used"
+        )
+        private Integer smallestBatchSize;
+
+        @Schema(
+            title = "Largest batch size used"
+        )
+        private Integer largestBatchSize;
+    }
+}
@@ -0,0 +1,158 @@
+package io.kestra.plugin.surrealdb;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the highest value of a monotonic field over the rows of a poll, and filters the next poll to the rows above it.
+ * <p>
+ * Values are compared the way SurrealDB returns them: numbers numerically, datetimes as instants, record ids with an
+ * integer key by that key, anything else as text.
+ */
+final class Watermark implements Consumer<Map<String, Object>> {
+    static final String PARAMETER = "kestra_watermark";
+    static final String TABLE_PARAMETER = "kestra_watermark_table";
+
+    private static final List<String> FORBIDDEN_CLAUSES = List.of("SPLIT", "GROUP");
+    private static final List<String> BOUNDED_FORBIDDEN_CLAUSES = List.of("SPLIT", "GROUP", "ORDER", "LIMIT", "START", "FETCH", "TIMEOUT", "PARALLEL", "EXPLAIN");
+
+    private final String field;
+    private Object value;
+
+    Watermark(String field, Object initial) {
+        this.field = field;
+        this.value = initial;
+    }
+
+    Object value() {
+        return value;
+    }
+
+    @Override
+    public void accept(Map<String, Object> row) {
+        Object candidate = row.get(field);
+        if (candidate == null) {
+            return;
+        }
+
+        if (value == null || compare(candidate, value) > 0) {
+            value = candidate;
+        }
+    }
+
+    /**
+     * Restricts a single {@code SELECT} to the rows strictly above the current value, if any.
+     */
+    String apply(String query) {
+        return apply(query, null);
+    }
+
+    /**
+     * Same as {@link #apply(String)}, reading at most {@code maxRows} rows in ascending order of the field when set,
+     * so the following poll resumes after the last row read.
+     */
+    String apply(String query, Integer maxRows) {
+        String statement = SurrealQL.singleSelect(query, maxRows == null ? "`watermarkField`" : "`maxRows`", maxRows == null ? FORBIDDEN_CLAUSES : BOUNDED_FORBIDDEN_CLAUSES);
+        if (value != null) {
+            statement = SurrealQL.withCondition(statement, field + " > " + comparable());
+        }
+
+        return maxRows == null ? statement : statement + " ORDER BY " + field + " ASC LIMIT " + maxRows;
+    }
+
+    /**
+     * Adds the parameters referenced by {@link #apply(String)} to the query parameters.
+     */
+    Map<String, Object> parameters(Map<String, Object> parameters) {
+        Map<String, Object> withWatermark = new HashMap<>(parameters);
+        if (value == null) {
+            return withWatermark;
+        }
+
+        if (isRecordId()) {
+            String recordId = value.toString();
+            withWatermark.put(TABLE_PARAMETER, recordId.substring(0, recordId.indexOf(':')));
+            withWatermark.put(PARAMETER, SurrealQL.unquoteKey(recordKey()));
+        } else {
+            withWatermark.put(PARAMETER, value instanceof Number number ? new BigDecimal(number.toString()).toPlainString() : value.toString());
+        }
+
+        return withWatermark;
+    }
+
+    private String comparable() {
+        if (value instanceof Number) {
+            return "<number> $" + PARAMETER;
+        }
+
+        if (isRecordId()) {
+            // a numeric key bound as a string would build a string id, which sorts after every numeric id
+            return "type::thing($" + TABLE_PARAMETER + ", " + (SurrealQL.isNumericKey(recordKey()) ? "<int> $" : "$") + PARAMETER + ")";
+        }
+
+        if (instant(value) != null) {
+            return "<datetime> $" + PARAMETER;
+        }
+
+        return "$" + PARAMETER;
+    }
+
+    private String recordKey() {
+        String recordId = value.toString();
+        return recordId.substring(recordId.indexOf(':') + 1);
+    }
+
+    private boolean isRecordId() {
+        return "id".equals(field) && value instanceof String string && string.indexOf(':') > 0;
+    }
+
+    private static int compare(Object left, Object right) {
+        if (left instanceof Number leftNumber && right instanceof Number rightNumber) {
+            return new BigDecimal(leftNumber.toString()).compareTo(new BigDecimal(rightNumber.toString()));
+        }
+
+        BigDecimal leftKey = numericRecordKey(left);
+        BigDecimal rightKey = numericRecordKey(right);
+        if (leftKey != null && rightKey != null) {
+            return leftKey.compareTo(rightKey);
+        }
+
+        Instant leftInstant = instant(left);
+        Instant rightInstant = instant(right);
+        if (leftInstant != null && rightInstant != null) {
+            return leftInstant.compareTo(rightInstant);
+        }
+
+        return left.toString().compareTo(right.toString());
+    }
+
+    private static BigDecimal numericRecordKey(Object value) {
+        if (!(value instanceof String string) || string.indexOf(':') <= 0) {
+            return null;
+        }
+
+        String key = string.substring(string.indexOf(':') + 1);
+        return SurrealQL.isNumericKey(key) ? new BigDecimal(key) : null;
+    }
+
+    private static Instant instant(Object value) {
+        if (value instanceof Instant instant) {
+            return instant;
+        }
+
+        if (!(value instanceof String string) || string.length() < 20 || string.charAt(10) != 'T') {
+            return null;
+        }
+
+        try {
+            return Instant.parse(string);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.kestra.plugin.surrealdb;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+
+import jakarta.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@KestraTest
+class BatchTest extends SurrealDBTest {
+
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void statements_GroupedInTransactionsAndFailedGroupSkipped() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> request.query().contains("c_int = 3")
+            ? SurrealDBStandIn.error("The query was not executed due to a failed transaction")
+            : SurrealDBStandIn.statement("[]"))) {
+            Batch.Output output = Batch.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .statements(Property.ofValue(List.of(
+                    "CREATE " + TABLE + ":1 SET c_int = 1",
+                    "CREATE " + TABLE + ":2 SET c_int = 2;",
+                    "CREATE " + TABLE + ":3 SET c_int = 3",
+                    "CREATE " + TABLE + ":4 SET c_int = 4",
+                    "CREATE " + TABLE + ":5 SET c_int = 5"
+                )))
+                .groupSize(Property.ofValue(2))
+                .maxRetries(Property.ofValue(1))
+                .skipFailedGroups(Property.ofValue(true))
+                .build().run(runContext);
+
+            assertThat(output.getGroups(), is(3));
+            assertThat(output.getFailedGroups(), is(1));
+            assertThat(output.getStatementCount(), is(3L));
+
+            // a statement error would fail again, it is not retried
+            assertThat(output.getRetries(), is(0));
+            var requests = standIn.getRequests("query");
+            assertThat(requests, hasSize(3));
+            assertThat(requests.getFirst().query(), is("""
+                BEGIN TRANSACTION;
+                CREATE %1$s:1 SET c_int = 1;
+                CREATE %1$s:2 SET c_int = 2;
+                COMMIT TRANSACTION;""".formatted(TABLE)));
+        }
+    }
+
+    @Test
+    void from_RowsBoundAsParametersAndDroppedConnectionRetried() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        URI from = storeRows(List.of(Map.of("c_int", 1, "c_string", "it's"), Map.of("c_int", 2, "c_string", "b")));
+        AtomicInteger queries = new AtomicInteger();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> {
+            if (queries.getAndIncrement() == 0) {
+                // the connection drops before the first transaction is answered
+                request.socket().close();
+                return null;
+            }
+            return SurrealDBStandIn.statement("[]");
+        })) {
+            Batch.Output output = Batch.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .from(Property.ofValue(from.toString()))
+                .query(Property.ofValue("CREATE " + TABLE + " CONTENT $row"))
+                .requestTimeout(Property.ofValue(Duration.ofSeconds(5)))
+                .build().run(runContext);
+
+            assertThat(output.getStatementCount(), is(2L));
+            assertThat(output.getRetries(), is(1));
+            assertThat(standIn.getOpenedConnections(), is(2));
+
+            SurrealDBStandIn.Request request = standIn.getRequests("query").getLast();
+            assertThat(request.query(), is("""
+                BEGIN TRANSACTION;
+                LET $row = $kestra_row_0;
+                CREATE %1$s CONTENT $row;
+                LET $row = $kestra_row_1;
+                CREATE %1$s CONTENT $row;
+                COMMIT TRANSACTION;""".formatted(TABLE)));
+            assertThat(request.variables().getAsJsonObject(Batch.ROW_PARAMETER_PREFIX + "0").get("c_string").getAsString(), is("it's"));
+            assertThat(request.variables().getAsJsonObject(Batch.ROW_PARAMETER_PREFIX + "1").get("c_int").getAsInt(), is(2));
+        }
+    }
+
+    @Test
+    void requestTimeout_RetriesLateGroupOnNewConnection() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        AtomicInteger queries = new AtomicInteger();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> {
+            if (queries.getAndIncrement() == 0) {
+                // answered after the request timeout, once the task has given up on it
+                SurrealDBStandIn.answerLater(request, SurrealDBStandIn.statement("[]"), Duration.ofSeconds(2));
+                return null;
+            }
+            return SurrealDBStandIn.statement("[]");
+        })) {
+            Batch.Output output = Batch.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .statements(Property.ofValue(List.of("UPSERT " + TABLE + ":1 SET c_int = 1")))
+                .requestTimeout(Property.ofValue(Duration.ofSeconds(1)))
+                .build().run(runContext);
+
+            assertThat(output.getStatementCount(), is(1L));
+            assertThat(output.getRetries(), is(1));
+
+            // nothing else is sent on the socket of the unanswered transaction
+            var requests = standIn.getRequests("query");
+            assertThat(requests, hasSize(2));
+            assertThat(requests.get(1).socket(), not(sameInstance(requests.getFirst().socket())));
+            assertThat(standIn.getOpenedConnections(), is(2));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package io.kestra.plugin.surrealdb;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.executions.AbstractMetricEntry;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.serializers.FileSerde;
+
+import jakarta.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@KestraTest
+class ExportTest extends SurrealDBTest {
+
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void export_PartitionsOverConnectionsAndMerges() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        AtomicInteger rows = new AtomicInteger();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> {
+            if (request.query().contains(" ASC LIMIT 1")) {
+                return SurrealDBStandIn.statement("[{\"c_int\":0}]");
+            }
+            if (request.query().contains(" DESC LIMIT 1")) {
+                return SurrealDBStandIn.statement("[{\"c_int\":99}]");
+            }
+
+            int first = rows.getAndAdd(2);
+            return SurrealDBStandIn.statement("""
+                [{"id":"%1$s:%2$d","c_int":%2$d},{"id":"%1$s:%3$d","c_int":%3$d}]
+                """.formatted(TABLE, first, first + 1));
+        })) {
+            Export.Output output = Export.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .table(Property.ofValue(TABLE))
+                .partitionField(Property.ofValue("c_int"))
+                .partitions(Property.ofValue(4))
+                .connections(Property.ofValue(4))
+                .merge(Property.ofValue(true))
+                .build().run(runContext);
+
+            assertThat(output.getPartitions(), is(4));
+            assertThat(output.getUris(), hasSize(4));
+            assertThat(output.getRowCount(), is(8L));
+            assertThat(standIn.getOpenedConnections(), is(5));
+
+            List<String> partitionQueries = standIn.getRequests("query").stream()
+                .map(SurrealDBStandIn.Request::query)
+                .filter(query -> query.startsWith("SELECT * FROM"))
+                .toList();
+            assertThat(partitionQueries, hasItem("SELECT * FROM " + TABLE + " WHERE c_int < $" + Export.UPPER_PARAMETER + " ORDER BY id LIMIT 10000"));
+            assertThat(partitionQueries, hasItem("SELECT * FROM " + TABLE + " WHERE c_int >= $" + Export.LOWER_PARAMETER + " AND c_int < $" + Export.UPPER_PARAMETER + " ORDER BY id LIMIT 10000"));
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(runContext.storage().getFile(output.getUri())))) {
+                assertThat(FileSerde.readAll(reader).count().block(), is(8L));
+            }
+
+            // every page of every partition reports its metrics, none lost to concurrent partitions
+            Map<String, List<AbstractMetricEntry<?>>> metrics = runContext.metrics().stream().collect(Collectors.groupingBy(AbstractMetricEntry::getName));
+            assertThat(metrics.get("page.duration"), hasSize(partitionQueries.size()));
+            assertThat(metrics.get("server.duration"), hasSize(partitionQueries.size()));
+            assertThat(metrics.get("pages"), hasSize(4));
+        }
+    }
+
+    @Test
+    void queryTimeout_FailsOnStalledPartition() throws Exception {
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> {
+            if (request.query().contains(" ASC LIMIT 1")) {
+                return SurrealDBStandIn.statement("[{\"c_int\":0}]");
+            }
+            if (request.query().contains(" DESC LIMIT 1")) {
+                return SurrealDBStandIn.statement("[{\"c_int\":99}]");
+            }
+
+            // the first partition never gets an answer
+            return request.query().contains(Export.LOWER_PARAMETER) ? SurrealDBStandIn.statement("[]") : null;
+        })) {
+            Export task = Export.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .table(Property.ofValue(TABLE))
+                .partitionField(Property.ofValue("c_int"))
+                .partitions(Property.ofValue(2))
+                .connections(Property.ofValue(2))
+                .queryTimeout(Property.ofValue(Duration.ofSeconds(1)))
+                .build();
+
+            long start = System.nanoTime();
+            assertThrows(TimeoutException.class, () -> task.run(runContextFactory.of()));
+            assertThat(Duration.ofNanos(System.nanoTime() - start), lessThan(Duration.ofSeconds(10)));
+        }
+    }
+
+    @Test
+    void queryTimeout_FailsOnUnansweredBounds() throws Exception {
+        // the range of the partition field is never answered
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> null)) {
+            Export task = Export.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .table(Property.ofValue(TABLE))
+                .partitionField(Property.ofValue("c_int"))
+                .queryTimeout(Property.ofValue(Duration.ofSeconds(1)))
+                .build();
+
+            long start = System.nanoTime();
+            TimeoutException exception = assertThrows(TimeoutException.class, () -> task.run(runContextFactory.of()));
+            assertThat(exception.getMessage(), containsString("`c_int`"));
+            assertThat(Duration.ofNanos(System.nanoTime() - start), lessThan(Duration.ofSeconds(10)));
+            assertThat(standIn.getRequests("query"), hasSize(1));
+        }
+    }
+
+    @Test
+    void partitions_InterpolatedBoundaries() {
+        List<Export.Partition> numeric = Export.partitions(0L, 99L, "c_int", 4);
+        assertThat(numeric, hasSize(4));
+        assertThat(numeric.getFirst().parameters(), is(Map.of(Export.UPPER_PARAMETER, 25L)));
+        assertThat(numeric.get(1).parameters(), is(Map.of(Export.LOWER_PARAMETER, 25L, Export.UPPER_PARAMETER, 50L)));
+        assertThat(numeric.getLast().condition(), is("c_int >= $" + Export.LOWER_PARAMETER));
+
+        List<Export.Partition> ids = Export.partitions(TABLE + ":1", TABLE + ":3", "id", 8);
+        assertThat(ids, hasSize(3));
+        assertThat(ids.get(1).condition(), is("id >= type::thing($" + Export.TABLE_PARAMETER + ", $" + Export.LOWER_PARAMETER + ") AND id < type::thing($" + Export.TABLE_PARAMETER + ", $" + Export.UPPER_PARAMETER + ")"));
+        assertThat(ids.get(1).parameters().get(Export.TABLE_PARAMETER), is(TABLE));
+
+        List<Export.Partition> datetimes = Export.partitions(Instant.parse("2024-01-01T00:00:00Z"), Instant.parse("2024-01-03T00:00:00Z"), "created_at", 2);
+        assertThat(datetimes.getFirst().parameters(), is(Map.of(Export.UPPER_PARAMETER, "2024-01-02T00:00:00Z")));
+
+        assertThat(Export.partitions(null, null, "c_int", 4), hasSize(1));
+    }
+}
@@ -0,0 +1,191 @@
+package io.kestra.plugin.surrealdb;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+
+import jakarta.inject.Inject;
+import reactor.core.publisher.Flux;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@KestraTest
+class LoadTest extends SurrealDBTest {
+
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void load_BatchesAndRetries() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        URI from = storeRows(rows(2_500));
+        AtomicInteger queries = new AtomicInteger();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> {
+            if (queries.incrementAndGet() == 2) {
+                // a lost connection is retried, unlike a statement error
+                request.socket().close();
+                return null;
+            }
+            return SurrealDBStandIn.statement("[]");
+        })) {
+            Load.Output output = Load.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .from(Property.ofValue(from.toString()))
+                .table(Property.ofValue(TABLE))
+                .chunk(Property.ofValue(1000))
+                // one batch at a time, so that only the second one is sent on the dropped connection
+                .maxInFlight(Property.ofValue(1))
+                .build().run(runContext);
+
+            assertThat(output.getRowCount(), is(2_500L));
+            assertThat(output.getBatches(), is(3));
+            assertThat(output.getRetries(), is(1));
+            assertThat(standIn.getOpenedConnections(), is(2));
+
+            var inserts = standIn.getRequests("query");
+            assertThat(inserts, hasSize(4));
+            assertThat(inserts.getFirst().query(), is("INSERT INTO " + TABLE + " $" + Load.ROWS_PARAMETER));
+            assertThat(
+                inserts.stream().mapToInt(insert -> insert.variables().getAsJsonArray(Load.ROWS_PARAMETER).size()).sum(),
+                is(3_500)
+            );
+        }
+    }
+
+    @Test
+    void load_FailsWhenBatchKeepsFailing() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        URI from = storeRows(rows(10));
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.error("There was a problem with the database"))) {
+            Load load = Load.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .from(Property.ofValue(from.toString()))
+                .table(Property.ofValue("my table"))
+                .maxRetries(Property.ofValue(1))
+                .build();
+
+            IllegalStateException exception = assertThrows(IllegalStateException.class, () -> load.run(runContext));
+            assertThat(exception.getMessage(), containsString("1 of 1 batches"));
+
+            // a statement error would fail again, it is not retried
+            assertThat(standIn.getRequests("query"), hasSize(1));
+            assertThat(standIn.getRequests("query").getFirst().query(), startsWith("INSERT INTO ⟨my table⟩ "));
+        }
+    }
+
+    @Test
+    void load_SpreadsBatchesOverConnectionsAndReconnectsLostOne() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        URI from = storeRows(rows(10_000));
+        AtomicInteger queries = new AtomicInteger();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> {
+            if (queries.incrementAndGet() == 3) {
+                request.socket().close();
+                return null;
+            }
+            return SurrealDBStandIn.statement("[]");
+        })) {
+            Load.Output output = Load.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .from(Property.ofValue(from.toString()))
+                .table(Property.ofValue(TABLE))
+                .chunk(Property.ofValue(500))
+                .connections(Property.ofValue(4))
+                .ordered(Property.ofValue(true))
+                .build().run(runContext);
+
+            assertThat(output.getRowCount(), is(10_000L));
+            assertThat(output.getBatches(), is(20));
+            assertThat(output.getRetries(), is(1));
+            assertThat(standIn.getOpenedConnections(), is(5));
+            assertThat(
+                standIn.getRequests("query").stream().map(SurrealDBStandIn.Request::socket).distinct().count(),
+                is(5L)
+            );
+        }
+    }
+
+    @Test
+    void requestTimeout_RetriesUnansweredBatchOnNewConnection() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        URI from = storeRows(rows(2_000));
+        AtomicInteger queries = new AtomicInteger();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> queries.incrementAndGet() == 1 ? null : SurrealDBStandIn.statement("[]"))) {
+            Load.Output output = Load.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .from(Property.ofValue(from.toString()))
+                .table(Property.ofValue(TABLE))
+                .chunk(Property.ofValue(1000))
+                .ordered(Property.ofValue(true))
+                .requestTimeout(Property.ofValue(Duration.ofSeconds(1)))
+                .build().run(runContext);
+
+            assertThat(output.getRowCount(), is(2_000L));
+            assertThat(output.getRetries(), is(1));
+            assertThat(standIn.getOpenedConnections(), is(2));
+        }
+    }
+
+    @Test
+    void adaptiveBatch_FollowsTargetLatency() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        Load load = Load.builder()
+            .targetLatency(Property.ofValue(Duration.ofSeconds(1)))
+            .maxChunk(Property.ofValue(150))
+            .build();
+
+        AdaptiveBatch batchSize = AdaptiveBatch.of(runContext, 100, load);
+        batchSize.onSuccess(Duration.ofMillis(10));
+        assertThat(batchSize.size(), is(125));
+        batchSize.onSuccess(Duration.ofMillis(10));
+        assertThat(batchSize.size(), is(150));
+        batchSize.onSuccess(Duration.ofSeconds(2));
+        assertThat(batchSize.size(), is(113));
+        batchSize.onFailure(new IllegalStateException("Insert failed: invalid field"));
+        assertThat(batchSize.size(), is(113));
+        batchSize.onFailure(new TimeoutException());
+        assertThat(batchSize.size(), is(56));
+        assertThat(batchSize.smallest(), is(56));
+        assertThat(batchSize.largest(), is(150));
+
+        assertThat(batchSize.batches(Flux.range(0, 120)).map(List::size).collectList().block(), contains(56, 56, 8));
+
+        AdaptiveBatch fixed = AdaptiveBatch.of(runContext, 100, Load.builder().build());
+        fixed.onSuccess(Duration.ofMillis(10));
+        fixed.onFailure(new TimeoutException());
+        assertThat(fixed.size(), is(100));
+    }
+
+    private static List<Map<String, Object>> rows(int count) {
+        return IntStream.range(0, count).<Map<String, Object>>mapToObj(i -> Map.of("c_int", i, "c_string", "row-" + i)).toList();
+    }
+}
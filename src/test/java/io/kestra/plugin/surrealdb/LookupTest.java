@@ -0,0 +1,121 @@
+package io.kestra.plugin.surrealdb;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.serializers.FileSerde;
+
+import jakarta.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@KestraTest
+class LookupTest extends SurrealDBTest {
+
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void lookup_DeduplicatesAndChunksIds() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> request.query().contains(":2")
+            ? SurrealDBStandIn.statement("[{\"id\":\"%1$s:1\",\"c_int\":1},{\"id\":\"%1$s:2\",\"c_int\":2}]".formatted(TABLE))
+            : SurrealDBStandIn.statement("[]"))) {
+            Lookup.Output output = Lookup.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .ids(Property.ofValue(List.of(TABLE + ":1", TABLE + ":2", TABLE + ":1", TABLE + ":a b")))
+                .chunk(Property.ofValue(3))
+                .build().run(runContext);
+
+            assertThat(output.getSize(), is(2L));
+            assertThat(output.getDistinctIds(), is(3));
+            assertThat(output.getMissing(), is(1L));
+            assertThat(
+                standIn.getRequests("query").stream().map(SurrealDBStandIn.Request::query).toList(),
+                contains("SELECT * FROM " + TABLE + ":1, " + TABLE + ":2", "SELECT * FROM " + TABLE + ":⟨a b⟩")
+            );
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(runContext.storage().getFile(output.getUri())))) {
+                List<Object> rows = FileSerde.readAll(reader).collectList().block();
+                assertThat(((Map<String, Object>) rows.getFirst()).get("id"), is(TABLE + ":1"));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void joinField_StoresEachRowWithItsRecord() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        URI from = storeRows(List.of(
+            Map.of("order", 1, "customer", TABLE + ":1"),
+            Map.of("order", 2, "customer", TABLE + ":⟨9⟩"),
+            Map.of("order", 3, "customer", TABLE + ":1"),
+            Map.of("order", 4)
+        ));
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.statement("[{\"id\":\"%s:1\",\"c_int\":1}]".formatted(TABLE)))) {
+            Lookup.Output output = Lookup.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .from(Property.ofValue(from.toString()))
+                .idField(Property.ofValue("customer"))
+                .joinField(Property.ofValue("customer"))
+                .build().run(runContext);
+
+            assertThat(output.getSize(), is(4L));
+            assertThat(output.getDistinctIds(), is(2));
+            assertThat(output.getMissing(), is(1L));
+            assertThat(
+                standIn.getRequests("query").stream().map(SurrealDBStandIn.Request::query).toList(),
+                contains("SELECT * FROM " + TABLE + ":1, " + TABLE + ":⟨9⟩")
+            );
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(runContext.storage().getFile(output.getUri())))) {
+                List<Map<String, Object>> rows = FileSerde.readAll(reader).map(row -> (Map<String, Object>) row).collectList().block();
+                assertThat(rows.stream().map(row -> ((Number) row.get("order")).intValue()).toList(), contains(1, 2, 3, 4));
+                assertThat(((Map<String, Object>) rows.get(0).get("customer")).get("c_int"), is(1L));
+                assertThat(rows.get(1).get("customer"), is(TABLE + ":⟨9⟩"));
+                assertThat(((Map<String, Object>) rows.get(2).get("customer")).get("id"), is(TABLE + ":1"));
+                assertThat(rows.get(3).containsKey("customer"), is(false));
+            }
+        }
+    }
+
+    @Test
+    void requestTimeout_FailsWhenServerNeverAnswers() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> null)) {
+            Lookup lookup = Lookup.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .ids(Property.ofValue(List.of(TABLE + ":1")))
+                .requestTimeout(Property.ofValue(Duration.ofSeconds(1)))
+                .build();
+
+            assertThrows(TimeoutException.class, () -> lookup.run(runContext));
+        }
+    }
+}
@@ -1,8 +1,17 @@
 package io.kestra.plugin.surrealdb;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.io.Charsets;
 import org.apache.commons.io.IOUtils;
@@ -11,19 +20,26 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+
 import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.executions.AbstractMetricEntry;
 import io.kestra.core.models.property.Property;
 import io.kestra.core.models.tasks.common.FetchType;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.serializers.FileSerde;
 import io.kestra.core.serializers.JacksonMapper;
-import io.kestra.core.storages.StorageInterface;
 import io.kestra.core.tenant.TenantService;
+import io.kestra.core.utils.TestsUtils;
 
 import jakarta.inject.Inject;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @KestraTest
 public class QueryTest extends SurrealDBTest {
@@ -31,14 +47,11 @@ public class QueryTest extends SurrealDBTest {
     @Inject
     private RunContextFactory runContextFactory;
 
-    @Inject
-    private StorageInterface storageInterface;
-
     @Test
     void simpleQuery_AllTypesParsed() throws Exception {
         RunContext runContext = runContextFactory.of();
 
-        Map<String, String> parameters = new HashMap<>();
+        Map<String, Object> parameters = new HashMap<>();
         parameters.put("name", "Kestra Doc");
         parameters.put("nullable", null);
         parameters.put("bool", String.valueOf(true));
@@ -73,10 +86,10 @@ public class QueryTest extends SurrealDBTest {
         assertThat(creationRows.get("c_string"), is("Kestra Doc"));
         assertThat(creationRows.get("c_null"), nullValue());
         assertThat(creationRows.get("c_boolean"), is(true));
-        assertThat(creationRows.get("c_int"), is(3.0));
-        assertThat(creationRows.get("c_decimal"), is(3.10));
-        assertThat(creationRows.get("c_decimal_e_notation"), is(3000.0));
-        assertThat((Iterable<Number>) creationRows.get("c_number_array"), Matchers.hasItems(3.0, 3.10, 3000.0));
+        assertThat(creationRows.get("c_int"), is(3L));
+        assertThat((BigDecimal) creationRows.get("c_decimal"), comparesEqualTo(new BigDecimal("3.10")));
+        assertThat(((Number) creationRows.get("c_decimal_e_notation")).doubleValue(), is(3000.0));
+        assertThat(((List<Number>) creationRows.get("c_number_array")).stream().map(Number::doubleValue).toList(), Matchers.hasItems(3.0, 3.10, 3000.0));
         assertThat((Iterable<String>) creationRows.get("c_string_array"), Matchers.hasItems("firstString", "secondString"));
 
         Map<Object, Object> object = toMap((List<Object>) creationRows.get("c_object"));
@@ -84,9 +97,9 @@ public class QueryTest extends SurrealDBTest {
         assertThat(object.get("c_object_prop"), is("hello"));
         Map<Object, Object> subObject = toMap((List<Object>) object.get("c_subobject"));
         assertThat(subObject, aMapWithSize(1));
-        assertThat(subObject, hasEntry("c_subobject_prop", 5.0));
+        assertThat(subObject, hasEntry("c_subobject_prop", 5L));
 
-        assertThat(creationRows.get("c_date"), is("2006-01-02T07:04:05.567Z"));
+        assertThat(creationRows.get("c_date"), is(Instant.parse("2006-01-02T07:04:05.567Z")));
 
         Query query = authentifiedQueryBuilder()
             .query("SELECT * FROM %s:%s".formatted(TABLE, id))
@@ -111,10 +124,10 @@ public class QueryTest extends SurrealDBTest {
         assertThat(row.get("c_string"), is("Kestra Doc"));
         assertThat(row.get("c_null"), nullValue());
         assertThat(row.get("c_boolean"), is(true));
-        assertThat(row.get("c_int"), is(3.0));
-        assertThat(row.get("c_decimal"), is(3.10));
-        assertThat(row.get("c_decimal_e_notation"), is(3000.0));
-        assertThat((Iterable<Number>) row.get("c_number_array"), Matchers.hasItems(3.0, 3.10, 3000.0));
+        assertThat(row.get("c_int"), is(3L));
+        assertThat((BigDecimal) row.get("c_decimal"), comparesEqualTo(new BigDecimal("3.10")));
+        assertThat(((Number) row.get("c_decimal_e_notation")).doubleValue(), is(3000.0));
+        assertThat(((List<Number>) row.get("c_number_array")).stream().map(Number::doubleValue).toList(), Matchers.hasItems(3.0, 3.10, 3000.0));
         assertThat((Iterable<String>) row.get("c_string_array"), Matchers.hasItems("firstString", "secondString"));
 
         object = toMap((List<Object>) row.get("c_object"));
@@ -122,16 +135,16 @@ public class QueryTest extends SurrealDBTest {
         assertThat(object.get("c_object_prop"), is("hello"));
         subObject = toMap((List<Object>) object.get("c_subobject"));
         assertThat(subObject, aMapWithSize(1));
-        assertThat(subObject, hasEntry("c_subobject_prop", 5.0));
+        assertThat(subObject, hasEntry("c_subobject_prop", 5L));
 
-        assertThat(row.get("c_date"), is("2006-01-02T07:04:05.567Z"));
+        assertThat(row.get("c_date"), is(Instant.parse("2006-01-02T07:04:05.567Z")));
     }
 
     @Test
     void simpleQuery_WorksWithId() throws Exception {
         RunContext runContext = runContextFactory.of();
 
-        Map<String, String> parameters = Map.of("name", "A collection doc");
+        Map<String, Object> parameters = Map.of("name", "A collection doc");
 
         String id = UUID.randomUUID().toString().toLowerCase().replace("-", "");
 
@@ -192,7 +205,7 @@ public class QueryTest extends SurrealDBTest {
 
         Map<String, Object> createRow = queryCreate.getRow();
         assertThat(createRow.get("c_string"), is("Kestra Doc"));
-        assertThat(createRow.get("c_int"), is(3.0));
+        assertThat(createRow.get("c_int"), is(3L));
 
         Query query = authentifiedQueryBuilder()
             .query("""
@@ -220,14 +233,14 @@ public class QueryTest extends SurrealDBTest {
 
         Map<String, Object> row = queryResult.getRow();
         assertThat(row.get("c_string"), is("Kestra Doc"));
-        assertThat(row.get("c_int"), is(3.0));
+        assertThat(row.get("c_int"), is(3L));
     }
 
     @Test
     void simpleQuery_FetchAll() throws Exception {
         RunContext runContext = runContextFactory.of();
 
-        Map<String, String> parameters = Map.of("name", "Kestra Doc");
+        Map<String, Object> parameters = Map.of("name", "Kestra Doc");
 
         String firstId = UUID.randomUUID().toString().toLowerCase().replace("-", "");
         String secondId = UUID.randomUUID().toString().toLowerCase().replace("-", "");
@@ -320,7 +333,7 @@ public class QueryTest extends SurrealDBTest {
     void simpleQuery_ToInternalStorage() throws Exception {
         RunContext runContext = runContextFactory.of();
 
-        Map<String, String> parameters = Map.of("name", "A collection doc");
+        Map<String, Object> parameters = Map.of("name", "A collection doc");
 
         String id = UUID.randomUUID().toString().toLowerCase().replace("-", "");
         Query.Output queryCreate = authentifiedQueryBuilder()
@@ -362,6 +375,486 @@ public class QueryTest extends SurrealDBTest {
         assertThat(queryDelete.getRows(), nullValue());
     }
 
+    @Test
+    void store_LargeResultFromStandIn() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        int rowCount = 200_000;
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.statement(syntheticRows(rowCount)))) {
+            Query.Output output = Query.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .query("SELECT * FROM " + TABLE)
+                .fetchType(Property.ofValue(FetchType.STORE))
+                .build().run(runContext);
+
+            assertThat(output.getSize(), is((long) rowCount));
+
+            try (var reader = new BufferedReader(new InputStreamReader(storageInterface.get(TenantService.MAIN_TENANT, null, output.getUri())), FileSerde.BUFFER_SIZE)) {
+                List<Object> rows = FileSerde.readAll(reader).collectList().block();
+                assertThat(rows, hasSize(rowCount));
+                assertThat(((Map<String, Object>) rows.getLast()).get("c_string"), is("row-" + (rowCount - 1)));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"OFFSET", "KEYSET"})
+    void store_Paginated(QueryInterface.Pagination pagination) throws Exception {
+        RunContext runContext = runContextFactory.of();
+        int rowCount = 25;
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> {
+            int from = 0;
+            if (request.query().contains(" START ")) {
+                from = Integer.parseInt(request.query().substring(request.query().lastIndexOf(" START ") + 7).trim());
+            } else if (request.variables().has(QueryPager.CURSOR_KEY_PARAMETER)) {
+                from = Integer.parseInt(request.variables().get(QueryPager.CURSOR_KEY_PARAMETER).getAsString()) + 1;
+            }
+            int to = Math.min(rowCount, from + 10);
+            return SurrealDBStandIn.statement(syntheticRows(from, to));
+        })) {
+            Query.Output output = Query.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .query("SELECT * FROM " + TABLE + " WHERE c_int >= 0;")
+                .fetchType(Property.ofValue(FetchType.STORE))
+                .pagination(Property.ofValue(pagination))
+                .pageSize(Property.ofValue(10))
+                .build().run(runContext);
+
+            assertThat(output.getSize(), is((long) rowCount));
+            assertThat(output.getPages(), is(3));
+
+            List<String> queries = standIn.getRequests("query").stream()
+                .map(SurrealDBStandIn.Request::query)
+                .toList();
+            assertThat(queries, hasSize(3));
+            if (pagination == QueryInterface.Pagination.KEYSET) {
+                assertThat(queries.get(0), is("SELECT * FROM " + TABLE + " WHERE c_int >= 0 ORDER BY id LIMIT 10"));
+                assertThat(queries.get(1), is("SELECT * FROM " + TABLE + " WHERE (c_int >= 0) AND id > type::thing($kestra_cursor_table, <int> $kestra_cursor_key) ORDER BY id LIMIT 10"));
+            } else {
+                assertThat(queries.get(2), is("SELECT * FROM " + TABLE + " WHERE c_int >= 0 ORDER BY id LIMIT 10 START 20"));
+            }
+
+            try (var reader = new BufferedReader(new InputStreamReader(storageInterface.get(TenantService.MAIN_TENANT, null, output.getUri())), FileSerde.BUFFER_SIZE)) {
+                List<Object> rows = FileSerde.readAll(reader).collectList().block();
+                assertThat(rows, hasSize(rowCount));
+            }
+        }
+    }
+
+    @Test
+    void pooled_ReusesAuthenticatedConnection() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.statement(syntheticRows(1)))) {
+            for (int i = 0; i < 20; i++) {
+                Query.Output output = authentifiedQueryBuilder()
+                    .port(standIn.getPort())
+                    .query("SELECT * FROM " + TABLE)
+                    .fetchType(Property.ofValue(FetchType.FETCH_ONE))
+                    .pooled(Property.ofValue(true))
+                    .build().run(runContext);
+
+                assertThat(output.getSize(), is(1L));
+            }
+
+            assertThat(standIn.getOpenedConnections(), is(1));
+            assertThat(standIn.getRequests("signin"), hasSize(1));
+            assertThat(standIn.getRequests("use"), hasSize(1));
+            assertThat(standIn.getRequests("query"), hasSize(20));
+        }
+    }
+
+    @Test
+    void lifecycle_ReleasesThreadsAndSockets() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> request.query().startsWith("FAIL")
+            ? SurrealDBStandIn.error("There was a problem with the database")
+            : SurrealDBStandIn.statement(syntheticRows(1))
+        )) {
+            long threadsBefore = webSocketClientThreads();
+
+            for (int i = 0; i < 30; i++) {
+                Query query = authentifiedQueryBuilder()
+                    .port(standIn.getPort())
+                    .query(i % 2 == 0 ? "SELECT * FROM " + TABLE : "FAIL")
+                    .fetchType(Property.ofValue(FetchType.FETCH_ONE))
+                    .build();
+
+                if (i % 2 == 0) {
+                    assertThat(query.run(runContext).getSize(), is(1L));
+                } else {
+                    assertThrows(Exception.class, () -> query.run(runContext));
+                }
+            }
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while ((webSocketClientThreads() > threadsBefore || !standIn.getConnections().isEmpty()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+
+            assertThat(standIn.getOpenedConnections(), is(30));
+            assertThat(standIn.getConnections(), empty());
+            assertThat(webSocketClientThreads(), lessThanOrEqualTo(threadsBefore));
+        }
+    }
+
+    private static long webSocketClientThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+            .filter(thread -> thread.getName().startsWith("WebSocketConnectReadThread") || thread.getName().startsWith("WebSocketWriteThread"))
+            .count();
+    }
+
+    @Test
+    void store_GzipCompressed() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.statement(syntheticRows(1_000)))) {
+            Query.Output output = Query.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .query("SELECT * FROM " + TABLE)
+                .fetchType(Property.ofValue(FetchType.STORE))
+                .compression(Property.ofValue(Query.Compression.GZIP))
+                .build().run(runContext);
+
+            assertThat(output.getUri().getPath(), endsWith(".ion.gz"));
+
+            try (var reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(storageInterface.get(TenantService.MAIN_TENANT, null, output.getUri()))), FileSerde.BUFFER_SIZE)) {
+                List<Object> rows = FileSerde.readAll(reader).collectList().block();
+                assertThat(rows, hasSize(1_000));
+                assertThat(((Map<String, Object>) rows.getLast()).get("c_string"), is("row-999"));
+            }
+        }
+    }
+
+    @Test
+    void metrics_ConnectServerAndTraffic() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> """
+            [{"time":"250µs","status":"OK","result":[]},{"time":"1.5ms","status":"OK","result":%s}]
+            """.formatted(syntheticRows(3)))) {
+            Query.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .query("CREATE " + TABLE + " SET c_int = 1; SELECT * FROM " + TABLE)
+                .fetchType(Property.ofValue(FetchType.STORE))
+                .build().run(runContext);
+        }
+
+        Map<String, List<AbstractMetricEntry<?>>> metrics = runContext.metrics().stream().collect(Collectors.groupingBy(AbstractMetricEntry::getName));
+        assertThat(metrics.keySet(), hasItems("connect.duration", "auth.duration", "server.duration", "decode.duration", "storage.upload.duration", "received.bytes"));
+        assertThat((Duration) metrics.get("server.duration").getFirst().getValue(), is(Duration.ofNanos(1_750_000)));
+        assertThat(
+            metrics.get("statement.rows").stream().map(metric -> ((Number) metric.getValue()).intValue()).toList(),
+            contains(0, 3)
+        );
+        assertThat(((Number) metrics.get("received.bytes").getFirst().getValue()).longValue(), greaterThan(0L));
+    }
+
+    @Test
+    void perStatement_KeepsEachStatementResult() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> """
+            [{"time":"250µs","status":"OK","result":%s},{"time":"1.5ms","status":"OK","result":%s}]
+            """.formatted(syntheticRows(1), syntheticRows(10, 14)))) {
+            Query.Output output = Query.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .query("CREATE " + TABLE + " SET c_int = 0; SELECT * FROM " + TABLE + " WHERE c_int >= 10")
+                .fetchType(Property.ofValue(FetchType.STORE))
+                .perStatement(Property.ofValue(true))
+                .build().run(runContext);
+
+            assertThat(output.getSize(), is(5L));
+            assertThat(output.getUri(), nullValue());
+            assertThat(output.getStatements(), hasSize(2));
+
+            Query.StatementOutput select = output.getStatements().get(1);
+            assertThat(select.getIndex(), is(1));
+            assertThat(select.getStatus(), is("OK"));
+            assertThat(select.getTime(), is(Duration.ofNanos(1_500_000)));
+            assertThat(select.getSize(), is(4L));
+
+            try (var reader = new BufferedReader(new InputStreamReader(storageInterface.get(TenantService.MAIN_TENANT, null, select.getUri())), FileSerde.BUFFER_SIZE)) {
+                List<Object> rows = FileSerde.readAll(reader).collectList().block();
+                assertThat(rows, hasSize(4));
+                assertThat(((Map<String, Object>) rows.getFirst()).get("c_string"), is("row-10"));
+            }
+            assertThat(standIn.getRequests("query"), hasSize(1));
+        }
+    }
+
+    @Test
+    void parameters_SentWithTheirJsonType() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.statement(syntheticRows(3)))) {
+            Query.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .query("SELECT * FROM " + TABLE + " WHERE c_int IN $ids AND c_object.nested >= $min AND c_string != $name")
+                .parameters(Property.ofValue(Map.of(
+                    "ids", List.of(0, 1, 2),
+                    "min", 0,
+                    "name", "row-5",
+                    "since", Instant.parse("2024-05-01T10:00:00Z")
+                )))
+                .fetchType(Property.ofValue(FetchType.NONE))
+                .build().run(runContext);
+
+            var variables = standIn.getRequests("query").getFirst().variables();
+            assertThat(variables.get("ids").isJsonArray(), is(true));
+            assertThat(variables.getAsJsonArray("ids").size(), is(3));
+            assertThat(variables.get("min").getAsJsonPrimitive().isNumber(), is(true));
+            assertThat(variables.get("name").getAsString(), is("row-5"));
+            assertThat(variables.get("since").getAsString(), is("2024-05-01T10:00:00Z"));
+        }
+    }
+
+    @Test
+    void queryTimeout_FailsWhenServerNeverAnswers() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> null)) {
+            Query query = Query.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .query("SELECT * FROM " + TABLE + ";")
+                .queryTimeout(Property.ofValue(Duration.ofSeconds(1)))
+                .fetchType(Property.ofValue(FetchType.FETCH))
+                .build();
+
+            long start = System.nanoTime();
+            assertThrows(TimeoutException.class, () -> query.run(runContext));
+
+            assertThat(Duration.ofNanos(System.nanoTime() - start), lessThan(Duration.ofSeconds(5)));
+            assertThat(standIn.getRequests("query").getFirst().query(), is("SELECT * FROM " + TABLE + " TIMEOUT 1000ms"));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void typedRow_WritesWhatItReads() {
+        Map<String, Object> row = (Map<String, Object>) TypedRow.decode(JsonParser.parseString("""
+            {"id":"%s:1","at":"2024-05-01T10:00:00.25Z","offset":"2024-05-01T10:00:00+02:00","label":"2024-05-01Tea time",
+             "big":12345678901234567890,"ratio":1.5,"tags":["a",null,true],"nested":{"count":2}}
+            """.formatted(TABLE)));
+
+        assertThat(row.get("at"), is(Instant.parse("2024-05-01T10:00:00.25Z")));
+        assertThat(row.get("offset"), is("2024-05-01T10:00:00+02:00"));
+        assertThat(row.get("label"), is("2024-05-01Tea time"));
+        assertThat(row.get("big"), is(new BigDecimal("12345678901234567890")));
+
+        String json = new Gson().toJson(row, TypedRow.class);
+        assertThat(TypedRow.decode(JsonParser.parseString(json)), is(row));
+    }
+
+    @Test
+    void cacheTtl_ReadOnlyQueryServedFromCache() throws Exception {
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.statement(syntheticRows(3)))) {
+            Query.QueryBuilder<?, ?> builder = Query.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .cacheTtl(Property.ofValue(Duration.ofMinutes(1)))
+                .fetchType(Property.ofValue(FetchType.FETCH));
+
+            Query select = builder.query("SELECT * FROM " + TABLE + " WHERE c_int < $max").parameters(Property.ofValue(Map.of("max", 3))).build();
+            Query.Output miss = select.run(runContextFactory.of());
+            Query.Output hit = select.run(runContextFactory.of());
+
+            assertThat(miss.getCacheHit(), is(false));
+            assertThat(hit.getCacheHit(), is(true));
+            assertThat(hit.getSize(), is(3L));
+            assertThat(hit.getRows().getFirst().get("c_string"), is(miss.getRows().getFirst().get("c_string")));
+            assertThat(standIn.getRequests("query"), hasSize(1));
+
+            Query otherParameters = builder.query("SELECT * FROM " + TABLE + " WHERE c_int < $max").parameters(Property.ofValue(Map.of("max", 2))).build();
+            assertThat(otherParameters.run(runContextFactory.of()).getCacheHit(), is(false));
+
+            Query update = builder.query("UPDATE " + TABLE + " SET c_bool = true").parameters(Property.ofValue(Map.of())).build();
+            assertThat(update.run(runContextFactory.of()).getCacheHit(), nullValue());
+            assertThat(update.run(runContextFactory.of()).getCacheHit(), nullValue());
+            assertThat(standIn.getRequests("query"), hasSize(4));
+        }
+    }
+
+    @Test
+    void cacheTtl_KvStoreSharedAndBoundedBySize() throws Exception {
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.statement(syntheticRows(3)))) {
+            Query.QueryBuilder<?, ?> builder = Query.builder()
+                .id("cached")
+                .type(Query.class.getName())
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .cacheTtl(Property.ofValue(Duration.ofMinutes(1)))
+                .cacheStore(Property.ofValue(Query.CacheStore.KV))
+                .fetchType(Property.ofValue(FetchType.FETCH));
+
+            Query select = builder.query("SELECT * FROM " + TABLE + " WHERE c_int < 3").build();
+            Query.Output miss = select.run(TestsUtils.mockRunContext(runContextFactory, select, Map.of()));
+            Query.Output hit = select.run(TestsUtils.mockRunContext(runContextFactory, select, Map.of()));
+
+            assertThat(miss.getCacheHit(), is(false));
+            assertThat(hit.getCacheHit(), is(true));
+            assertThat(hit.getRows().getFirst().get("c_string"), is(miss.getRows().getFirst().get("c_string")));
+            assertThat(standIn.getRequests("query"), hasSize(1));
+
+            Query tooLarge = builder.query("SELECT * FROM " + TABLE + " WHERE c_int < 4").cacheMaxBytes(Property.ofValue(16L)).build();
+            assertThat(tooLarge.run(TestsUtils.mockRunContext(runContextFactory, tooLarge, Map.of())).getCacheHit(), is(false));
+            assertThat(tooLarge.run(TestsUtils.mockRunContext(runContextFactory, tooLarge, Map.of())).getCacheHit(), is(false));
+            assertThat(standIn.getRequests("query"), hasSize(3));
+        }
+    }
+
+    @Test
+    void resultCache_CollectorCountsBytesAndGivesUp() {
+        ResultCache.Collector unbounded = new ResultCache.Collector(Long.MAX_VALUE);
+        unbounded.accept(Map.of("c_string", "é"));
+        assertThat(unbounded.bytes(), is((long) unbounded.payload().getBytes(StandardCharsets.UTF_8).length));
+        assertThat(unbounded.bytes(), greaterThan((long) unbounded.payload().length()));
+
+        ResultCache.Collector bounded = new ResultCache.Collector(unbounded.bytes());
+        bounded.accept(Map.of("c_string", "é"));
+        assertThat(bounded.overflowed(), is(false));
+        bounded.accept(Map.of("c_string", "é"));
+        assertThat(bounded.overflowed(), is(true));
+        assertThat(bounded.bytes(), is(0L));
+    }
+
+    @Test
+    void pager_OffsetPagesFollowAnOrder() {
+        QueryPager ordered = new QueryPager("SELECT * FROM " + TABLE + " ORDER BY c_int DESC", Map.of(), QueryInterface.Pagination.OFFSET, 10);
+        assertThat(ordered.first().statement(), is("SELECT * FROM " + TABLE + " ORDER BY c_int DESC LIMIT 10 START 0"));
+
+        QueryPager grouped = new QueryPager("SELECT c_int, count() FROM " + TABLE + " GROUP BY c_int ORDER BY c_int", Map.of(), QueryInterface.Pagination.OFFSET, 10);
+        assertThat(grouped.first().statement(), is("SELECT c_int, count() FROM " + TABLE + " GROUP BY c_int ORDER BY c_int LIMIT 10 START 0"));
+
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new QueryPager("SELECT c_int, count() FROM " + TABLE + " GROUP BY c_int", Map.of(), QueryInterface.Pagination.OFFSET, 10)
+        );
+        assertThat(exception.getMessage(), containsString("`ORDER BY`"));
+    }
+
+    @Test
+    void templateCache_BindsLookupsAsParameters() throws Exception {
+        TemplateCache cache = new TemplateCache(8);
+        String template = "SELECT * FROM " + TABLE + " WHERE c_string != 'it\\'s' AND c_string = '{{ inputs.name }}' AND c_tag IN [\"{{ inputs.tag }}\"]";
+        Property<Map<String, Object>> parameters = JacksonMapper.ofJson().convertValue(
+            Map.of("label", "row-{{ inputs.id }}", "tags", List.of("a", "{{ inputs.name }}")),
+            new TypeReference<>() {}
+        );
+        String statement = "SELECT * FROM " + TABLE + " WHERE c_string != 'it\\'s' AND c_string = $kestra_template_0 AND c_tag IN [$kestra_template_1]";
+
+        RunContext first = runContextFactory.of(Map.of("inputs", Map.of("id", 1, "name", "row 1", "tag", "a")));
+        TemplateCache.Rendered rendered = cache.render(first, template, parameters);
+        assertThat(rendered.query(), is(statement));
+        assertThat(rendered.parameters(), is(Map.of(
+            "kestra_template_0", "row 1", "kestra_template_1", "a",
+            "label", "row-1", "tags", List.of("a", "row 1")
+        )));
+
+        RunContext second = runContextFactory.of(Map.of("inputs", Map.of("id", 2, "name", "row-2", "tag", "b")));
+        rendered = cache.render(second, template, parameters);
+        assertThat(rendered.query(), is(statement));
+        assertThat(rendered.parameters().get("kestra_template_0"), is("row-2"));
+        assertThat(rendered.parameters().get("label"), is("row-2"));
+        assertThat(cache.size(), is(2));
+
+        Map<String, List<AbstractMetricEntry<?>>> metrics = second.metrics().stream().collect(Collectors.groupingBy(AbstractMetricEntry::getName));
+        assertThat(metrics.get("template.cache.hit"), hasSize(1));
+        assertThat(metrics.get("template.cache.miss"), nullValue());
+    }
+
+    @Test
+    void templateCache_RendersValuesSurrealDBReadsAsMoreThanText() throws Exception {
+        TemplateCache cache = new TemplateCache(8);
+        String template = "SELECT * FROM t WHERE c_string = '{{ inputs.value }}'";
+
+        // escapes, record ids, datetimes and uuids keep the meaning the rendered literal gives them
+        for (String value : List.of("it\\'s", "a\\nb", TABLE + ":1", "2024-05-01T10:00:00Z", "2024-05-01", "550e8400-e29b-41d4-a716-446655440000")) {
+            RunContext runContext = runContextFactory.of(Map.of("inputs", Map.of("value", value)));
+            TemplateCache.Rendered rendered = cache.render(runContext, template, null);
+            assertThat(rendered.query(), is("SELECT * FROM t WHERE c_string = '" + value + "'"));
+            assertThat(rendered.parameters(), is(Map.of()));
+            assertThat(runContext.metrics().stream().map(AbstractMetricEntry::getName).toList(), is(List.of("template.cache.miss")));
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "SELECT * FROM {{ inputs.table }} WHERE c_int = 1 | SELECT * FROM " + TABLE + " WHERE c_int = 1",
+        "SELECT * FROM t WHERE c_string = 'row-{{ inputs.id }}' | SELECT * FROM t WHERE c_string = 'row-2'",
+        "SELECT * FROM t WHERE c_string = '{{ 'row' ~ inputs.id }}' | SELECT * FROM t WHERE c_string = 'row2'",
+        "SELECT * FROM t WHERE c_int = {{ inputs.id + 1 }} | SELECT * FROM t WHERE c_int = 3",
+        "SELECT * FROM t WHERE c_int = {{ inputs.table }} | SELECT * FROM t WHERE c_int = " + TABLE,
+        "SELECT * FROM t:{{ inputs.id }} | SELECT * FROM t:2",
+        "SELECT * FROM t WHERE c_int = {{ inputs.id }} LIMIT 1 | SELECT * FROM t WHERE c_int = 2 LIMIT 1",
+        "SELECT * FROM t WHERE id = r'{{ inputs.table }}:1' | SELECT * FROM t WHERE id = r'" + TABLE + ":1'",
+        "SELECT * FROM t WHERE c_string = u'{{ inputs.table }}' | SELECT * FROM t WHERE c_string = u'" + TABLE + "'",
+        "SELECT * FROM t WHERE c_string = '{{ inputs.table }}' -- it's | SELECT * FROM t WHERE c_string = '" + TABLE + "' -- it's",
+    })
+    void templateCache_RendersWhatItCannotBind(String template, String expected) throws Exception {
+        TemplateCache cache = new TemplateCache(8);
+        RunContext runContext = runContextFactory.of(Map.of("inputs", Map.of("id", 2, "table", TABLE)));
+
+        TemplateCache.Rendered rendered = cache.render(runContext, template, null);
+        assertThat(rendered.query(), is(expected));
+        assertThat(rendered.parameters(), is(Map.of()));
+        assertThat(runContext.metrics().stream().map(AbstractMetricEntry::getName).toList(), is(List.of("template.cache.miss")));
+    }
+
+    @Test
+    void parseDuration() {
+        assertThat(QueryMetrics.parseDuration("12ns"), is(Duration.ofNanos(12)));
+        assertThat(QueryMetrics.parseDuration("850.5µs"), is(Duration.ofNanos(850_500)));
+        assertThat(QueryMetrics.parseDuration("1.2ms"), is(Duration.ofNanos(1_200_000)));
+        assertThat(QueryMetrics.parseDuration("1m3s"), is(Duration.ofSeconds(63)));
+        assertThat(QueryMetrics.parseDuration("soon"), nullValue());
+    }
+
+    private static String syntheticRows(int rowCount) {
+        return syntheticRows(0, rowCount);
+    }
+
+    private static String syntheticRows(int from, int to) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(TABLE).append(':').append(i)
+                .append("\",\"c_string\":\"row-").append(i)
+                .append("\",\"c_int\":").append(i)
+                .append(",\"c_tags\":[\"a\",\"b\"],\"c_object\":{\"nested\":").append(i).append("}}");
+        }
+        return json.append(']').toString();
+    }
+
     private static Map<Object, Object> toMap(List<Object> list) {
         return list.stream()
             .flatMap(entry -> ((Map<String, String>) entry).entrySet().stream())
@@ -0,0 +1,91 @@
+package io.kestra.plugin.surrealdb;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.conditions.ConditionContext;
+import io.kestra.core.models.executions.Execution;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.utils.IdUtils;
+import io.kestra.core.utils.TestsUtils;
+
+import jakarta.inject.Inject;
+import reactor.core.publisher.Flux;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+@KestraTest
+class RealtimeTriggerTest extends SurrealDBTest {
+
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void oneExecutionPerNotification_ResubscribesAfterConnectionLoss() throws Exception {
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> {
+            int subscription = subscriptions.incrementAndGet();
+            String liveId = "4a2f1a8c-0000-4000-8000-00000000000" + subscription;
+
+            Thread.ofVirtual().start(() -> {
+                try {
+                    Thread.sleep(200);
+                    request.socket().send(notification(liveId, "CREATE", subscription));
+                    if (subscription == 1) {
+                        // simulate a connection loss right after the first change
+                        request.socket().close();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            return "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":\"" + liveId + "\"}]";
+        })) {
+            RealtimeTrigger trigger = RealtimeTrigger.builder()
+                .id(RealtimeTriggerTest.class.getSimpleName() + IdUtils.create())
+                .type(RealtimeTrigger.class.getName())
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .username(Property.ofValue(USERNAME))
+                .password(Property.ofValue(PASSWORD))
+                .query("LIVE SELECT * FROM " + TABLE)
+                .build();
+
+            Map.Entry<ConditionContext, io.kestra.core.models.triggers.Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+
+            try {
+                List<Execution> executions = Flux.from(trigger.evaluate(context.getKey(), context.getValue()))
+                    .take(2)
+                    .collectList()
+                    .block(Duration.ofSeconds(20));
+
+                assertThat(executions, hasSize(2));
+                assertThat(executions.getFirst().getTrigger().getVariables().get("action"), is("CREATE"));
+                assertThat(executions.getFirst().getTrigger().getVariables().get("record"), is(TABLE + ":1"));
+                assertThat(executions.get(1).getTrigger().getVariables().get("record"), is(TABLE + ":2"));
+                assertThat(standIn.getRequests("query"), hasSize(2));
+                assertThat(standIn.getRequests("signin"), hasSize(2));
+            } finally {
+                trigger.kill();
+            }
+        }
+    }
+
+    private static String notification(String liveId, String action, int id) {
+        return """
+            {"result":{"id":"%s","action":"%s","result":{"id":"%s:%d","c_string":"row-%d"}}}
+            """.formatted(liveId, action, TABLE, id, id);
+    }
+}
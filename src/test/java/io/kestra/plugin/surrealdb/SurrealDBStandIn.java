@@ -0,0 +1,156 @@
+package io.kestra.plugin.surrealdb;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Minimal SurrealDB JSON-RPC endpoint used to test the plugin without a running database.
+ * <p>
+ * {@code signin}, {@code use} and {@code ping} are always acknowledged, {@code query} calls are answered with the
+ * JSON returned by the handler, with an error when it returns {@link #error(String)}, or never answered when it
+ * returns {@code null}, unless the handler answers it itself with {@link #answerLater(Request, String, Duration)}.
+ */
+public class SurrealDBStandIn extends WebSocketServer implements AutoCloseable {
+    private static final String ERROR_PREFIX = "error:";
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final Function<Request, String> queryHandler;
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger openedConnections = new AtomicInteger();
+
+    private SurrealDBStandIn(Function<Request, String> queryHandler) {
+        super(new InetSocketAddress("127.0.0.1", 0));
+        this.queryHandler = queryHandler;
+        this.setReuseAddr(true);
+    }
+
+    public static SurrealDBStandIn start(Function<Request, String> queryHandler) throws InterruptedException {
+        SurrealDBStandIn standIn = new SurrealDBStandIn(queryHandler);
+        standIn.start();
+        if (!standIn.started.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("SurrealDB stand-in did not start");
+        }
+
+        return standIn;
+    }
+
+    /**
+     * Wraps a JSON array of rows into a single successful statement result.
+     */
+    public static String statement(String rowsJson) {
+        return "[{\"time\":\"1.5ms\",\"status\":\"OK\",\"result\":" + rowsJson + "}]";
+    }
+
+    /**
+     * Answers the request with a JSON-RPC error carrying the given message.
+     */
+    public static String error(String message) {
+        return ERROR_PREFIX + message;
+    }
+
+    public List<Request> getRequests() {
+        return requests;
+    }
+
+    public List<Request> getRequests(String method) {
+        return requests.stream().filter(request -> request.method().equals(method)).toList();
+    }
+
+    public int getOpenedConnections() {
+        return openedConnections.get();
+    }
+
+    @Override
+    public void onStart() {
+        started.countDown();
+    }
+
+    @Override
+    public void onOpen(WebSocket socket, ClientHandshake handshake) {
+        openedConnections.incrementAndGet();
+    }
+
+    @Override
+    public void onClose(WebSocket socket, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onError(WebSocket socket, Exception ex) {
+    }
+
+    @Override
+    public void onMessage(WebSocket socket, String message) {
+        JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+        Request request = new Request(
+            socket,
+            json.get("id").getAsString(),
+            json.get("method").getAsString(),
+            json.has("params") && json.get("params").isJsonArray() ? json.getAsJsonArray("params") : new JsonArray()
+        );
+        requests.add(request);
+
+        String result = "query".equals(request.method()) ? queryHandler.apply(request) : "null";
+        if (result != null) {
+            answer(request, result);
+        }
+    }
+
+    /**
+     * Answers the request, for handlers that returned {@code null} to answer it later; a closed socket is ignored.
+     */
+    public static void answer(Request request, String result) {
+        try {
+            if (result.startsWith(ERROR_PREFIX)) {
+                request.socket().send("{\"id\":\"" + request.id() + "\",\"error\":{\"code\":-32000,\"message\":\"" + result.substring(ERROR_PREFIX.length()) + "\"}}");
+            } else {
+                request.socket().send("{\"id\":\"" + request.id() + "\",\"result\":" + result + "}");
+            }
+        } catch (WebsocketNotConnectedException e) {
+            // the client gave up on the request and closed its connection
+        }
+    }
+
+    /**
+     * Answers the request after the delay, from another thread so other requests keep being answered meanwhile.
+     */
+    public static void answerLater(Request request, String result, Duration delay) {
+        Thread.startVirtualThread(() -> {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+            answer(request, result);
+        });
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        this.stop(1000);
+    }
+
+    public record Request(WebSocket socket, String id, String method, JsonArray params) {
+        public String query() {
+            return params.get(0).getAsString();
+        }
+
+        public JsonObject variables() {
+            return params.size() > 1 && params.get(1).isJsonObject() ? params.get(1).getAsJsonObject() : new JsonObject();
+        }
+    }
+}
@@ -1,6 +1,21 @@
 package io.kestra.plugin.surrealdb;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
 import io.kestra.core.models.property.Property;
+import io.kestra.core.serializers.FileSerde;
+import io.kestra.core.storages.StorageInterface;
+import io.kestra.core.tenant.TenantService;
+import io.kestra.core.utils.IdUtils;
+
+import jakarta.inject.Inject;
+import reactor.core.publisher.Flux;
 
 public class SurrealDBTest {
     protected static final String TABLE = "testtable_";
@@ -10,6 +25,9 @@ public class SurrealDBTest {
     protected static final String USERNAME = "Administrator";
     protected static final String PASSWORD = "password";
 
+    @Inject
+    protected StorageInterface storageInterface;
+
     protected Query.QueryBuilder authentifiedQueryBuilder() {
         return Query.builder()
             .host(HOST)
@@ -19,4 +37,19 @@ public class SurrealDBTest {
             .password(Property.ofValue(PASSWORD));
     }
 
+    /**
+     * Writes the rows to an ION file in internal storage, as a task upstream of the one tested would.
+     */
+    protected URI storeRows(List<? extends Map<String, ?>> rows) throws Exception {
+        File tempFile = File.createTempFile(getClass().getSimpleName(), ".ion");
+        try (var output = new BufferedWriter(new FileWriter(tempFile), FileSerde.BUFFER_SIZE)) {
+            FileSerde.writeAll(output, Flux.fromIterable(rows)).block();
+        }
+
+        try (var input = new FileInputStream(tempFile)) {
+            return storageInterface.put(TenantService.MAIN_TENANT, null, URI.create("/" + IdUtils.create() + ".ion"), input);
+        } finally {
+            tempFile.delete();
+        }
+    }
 }
@@ -1,20 +1,37 @@
 package io.kestra.plugin.surrealdb;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.java_websocket.WebSocket;
 import org.junit.jupiter.api.Test;
 
 import io.kestra.core.junit.annotations.EvaluateTrigger;
 import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.conditions.ConditionContext;
 import io.kestra.core.models.executions.Execution;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.common.FetchType;
+import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.utils.IdUtils;
+import io.kestra.core.utils.TestsUtils;
+
+import jakarta.inject.Inject;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.core.Is.is;
 
 @KestraTest
 public class TriggerTest extends SurrealDBTest {
 
+    @Inject
+    private RunContextFactory runContextFactory;
+
     @SuppressWarnings("unchecked")
     @Test
     @EvaluateTrigger(flow = "flows/surrealdb-listen.yml", triggerId = "watch")
@@ -24,4 +41,171 @@ public class TriggerTest extends SurrealDBTest {
         Map<String, Object> row = (Map<String, Object>) execution.getTrigger().getVariables().get("row");
         assertThat(row.get("c_string"), is("A collection doc"));
     }
+
+    @Test
+    void watermark_FiltersOnHighestValueRead() throws Exception {
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.statement("""
+            [{"id":"%1$s:2","created_at":"2024-05-01T10:00:05.5Z"},{"id":"%1$s:1","created_at":"2024-05-01T10:00:00Z"}]
+            """.formatted(TABLE)))) {
+            Watermark watermark = new Watermark("created_at", null);
+            String query = "SELECT * FROM " + TABLE + " ORDER BY created_at";
+
+            Query.Output output = Query.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .query(watermark.apply(query))
+                .fetchType(Property.ofValue(FetchType.FETCH))
+                .build()
+                .run(runContextFactory.of(), watermark);
+
+            assertThat(output.getSize(), is(2L));
+            assertThat(watermark.value(), is(Instant.parse("2024-05-01T10:00:05.5Z")));
+            assertThat(watermark.apply(query), is("SELECT * FROM " + TABLE + " WHERE created_at > <datetime> $" + Watermark.PARAMETER + " ORDER BY created_at"));
+            assertThat(watermark.parameters(Map.of()), is(Map.of(Watermark.PARAMETER, "2024-05-01T10:00:05.500Z")));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void maxRows_SplitsBacklogOverPollsOnOneConnection() throws Exception {
+        AtomicInteger polls = new AtomicInteger();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> {
+            int first = polls.getAndIncrement() * 2;
+            return SurrealDBStandIn.statement("""
+                [{"id":"%1$s:%2$d","c_int":%2$d},{"id":"%1$s:%3$d","c_int":%3$d}]
+                """.formatted(TABLE, first, first + 1));
+        })) {
+            Trigger trigger = Trigger.builder()
+                .id(TriggerTest.class.getSimpleName() + IdUtils.create())
+                .type(Trigger.class.getName())
+                .host(HOST)
+                .port(standIn.getPort())
+                .connectionTimeout(5)
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .query("SELECT * FROM " + TABLE)
+                .fetchType(Property.ofValue(FetchType.FETCH))
+                .watermarkField(Property.ofValue("c_int"))
+                .maxRows(Property.ofValue(2))
+                .build();
+
+            Map.Entry<ConditionContext, io.kestra.core.models.triggers.Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+            Optional<Execution> first = trigger.evaluate(context.getKey(), context.getValue());
+            Optional<Execution> second = trigger.evaluate(context.getKey(), context.getValue());
+
+            assertThat(first.isPresent(), is(true));
+            assertThat(((List<Object>) second.orElseThrow().getTrigger().getVariables().get("rows")).size(), is(2));
+
+            var queries = standIn.getRequests("query");
+            assertThat(queries, hasSize(2));
+            assertThat(queries.getFirst().query(), is("SELECT * FROM " + TABLE + " ORDER BY c_int ASC LIMIT 2"));
+            assertThat(queries.get(1).query(), endsWith(" WHERE c_int > <number> $" + Watermark.PARAMETER + " ORDER BY c_int ASC LIMIT 2"));
+            assertThat(queries.get(1).variables().get(Watermark.PARAMETER).getAsString(), is("1"));
+            assertThat(standIn.getOpenedConnections(), is(1));
+        }
+    }
+
+    @Test
+    void watermark_RecordIdAndExistingWhere() {
+        Watermark watermark = new Watermark("id", TABLE + ":42");
+
+        assertThat(
+            watermark.apply("SELECT * FROM " + TABLE + " WHERE active = true LIMIT 100;"),
+            is("SELECT * FROM " + TABLE + " WHERE (active = true) AND id > type::thing($" + Watermark.TABLE_PARAMETER + ", <int> $" + Watermark.PARAMETER + ") LIMIT 100")
+        );
+        assertThat(watermark.parameters(Map.of()), is(Map.of(Watermark.TABLE_PARAMETER, TABLE, Watermark.PARAMETER, "42")));
+
+        watermark.accept(Map.of("id", TABLE + ":9"));
+        watermark.accept(Map.of("id", TABLE + ":100"));
+        assertThat(watermark.value(), is(TABLE + ":100"));
+
+        Watermark stringKey = new Watermark("id", TABLE + ":⟨42⟩");
+        assertThat(stringKey.apply("SELECT * FROM " + TABLE), endsWith("id > type::thing($" + Watermark.TABLE_PARAMETER + ", $" + Watermark.PARAMETER + ")"));
+        assertThat(stringKey.parameters(Map.of()), is(Map.of(Watermark.TABLE_PARAMETER, TABLE, Watermark.PARAMETER, "42")));
+    }
+
+    @Test
+    void watermark_NumericRecordIdReadBackFromKv() throws Exception {
+        AtomicInteger polls = new AtomicInteger();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> polls.getAndIncrement() == 0
+            ? SurrealDBStandIn.statement("[{\"id\":\"%1$s:9\"},{\"id\":\"%1$s:10\"}]".formatted(TABLE))
+            : SurrealDBStandIn.statement("[{\"id\":\"%1$s:11\"}]".formatted(TABLE)))) {
+            Trigger trigger = Trigger.builder()
+                .id(TriggerTest.class.getSimpleName() + IdUtils.create())
+                .type(Trigger.class.getName())
+                .host(HOST)
+                .port(standIn.getPort())
+                .connectionTimeout(5)
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .query("SELECT * FROM " + TABLE)
+                .fetchType(Property.ofValue(FetchType.FETCH))
+                .watermarkField(Property.ofValue("id"))
+                .build();
+
+            Map.Entry<ConditionContext, io.kestra.core.models.triggers.Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+            assertThat(trigger.evaluate(context.getKey(), context.getValue()).isPresent(), is(true));
+            assertThat(trigger.evaluate(context.getKey(), context.getValue()).isPresent(), is(true));
+
+            var queries = standIn.getRequests("query");
+            assertThat(queries, hasSize(2));
+            assertThat(queries.getFirst().query(), is("SELECT * FROM " + TABLE));
+            assertThat(queries.get(1).query(), is("SELECT * FROM " + TABLE + " WHERE id > type::thing($" + Watermark.TABLE_PARAMETER + ", <int> $" + Watermark.PARAMETER + ")"));
+            assertThat(queries.get(1).variables().get(Watermark.TABLE_PARAMETER).getAsString(), is(TABLE));
+            assertThat(queries.get(1).variables().get(Watermark.PARAMETER).getAsString(), is("10"));
+        }
+    }
+
+    @Test
+    void pooled_ByDefaultKeepsConnectionBetweenPolls() throws Exception {
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.statement("[{\"id\":\"%s:1\"}]".formatted(TABLE)))) {
+            Trigger trigger = pollingTrigger(standIn);
+
+            Map.Entry<ConditionContext, io.kestra.core.models.triggers.Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+            assertThat(trigger.evaluate(context.getKey(), context.getValue()).isPresent(), is(true));
+            assertThat(trigger.evaluate(context.getKey(), context.getValue()).isPresent(), is(true));
+
+            assertThat(standIn.getRequests("query"), hasSize(2));
+            assertThat(standIn.getOpenedConnections(), is(1));
+        }
+    }
+
+    @Test
+    void pooled_ReconnectsAfterConnectionDropped() throws Exception {
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.statement("[{\"id\":\"%s:1\"}]".formatted(TABLE)))) {
+            Trigger trigger = pollingTrigger(standIn);
+
+            Map.Entry<ConditionContext, io.kestra.core.models.triggers.Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+            assertThat(trigger.evaluate(context.getKey(), context.getValue()).isPresent(), is(true));
+
+            // the server goes away between polls, as on a restart
+            WebSocket socket = standIn.getRequests("query").getFirst().socket();
+            socket.close();
+            for (int i = 0; i < 50 && !socket.isClosed(); i++) {
+                Thread.sleep(100);
+            }
+
+            assertThat(trigger.evaluate(context.getKey(), context.getValue()).isPresent(), is(true));
+            assertThat(standIn.getRequests("query"), hasSize(2));
+            assertThat(standIn.getOpenedConnections(), is(2));
+        }
+    }
+
+    private static Trigger pollingTrigger(SurrealDBStandIn standIn) {
+        return Trigger.builder()
+            .id(TriggerTest.class.getSimpleName() + IdUtils.create())
+            .type(Trigger.class.getName())
+            .host(HOST)
+            .port(standIn.getPort())
+            .connectionTimeout(5)
+            .namespace(NAMESPACE)
+            .database(DATABASE)
+            .query("SELECT * FROM " + TABLE)
+            .fetchType(Property.ofValue(FetchType.FETCH))
+            .build();
+    }
 }
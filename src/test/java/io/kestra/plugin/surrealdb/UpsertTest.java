@@ -0,0 +1,173 @@
+package io.kestra.plugin.surrealdb;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.executions.AbstractMetricEntry;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+
+import jakarta.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@KestraTest
+class UpsertTest extends SurrealDBTest {
+
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void upsert_CollapsesKeysToLastWrite() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        URI from = storeRows(List.<Map<String, Object>>of(
+            Map.of("id", TABLE + ":1", "c_string", "first"),
+            Map.of("id", TABLE + ":2", "c_string", "other"),
+            Map.of("id", 1, "c_string", "last")
+        ));
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.statement("[]"))) {
+            Upsert.Output output = Upsert.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .from(Property.ofValue(from.toString()))
+                .table(Property.ofValue(TABLE))
+                .maxInFlight(Property.ofValue(1))
+                .build().run(runContext);
+
+            assertThat(output.getRowCount(), is(3L));
+            assertThat(output.getWritten(), is(2L));
+            assertThat(output.getCollapsed(), is(1L));
+
+            var upserts = standIn.getRequests("query");
+            assertThat(upserts, hasSize(1));
+            assertThat(upserts.getFirst().query(), is(Upsert.statement(Upsert.Mode.MERGE)));
+
+            JsonArray rows = upserts.getFirst().variables().getAsJsonArray(Upsert.ROWS_PARAMETER);
+            assertThat(rows.size(), is(2));
+            JsonObject last = rows.get(1).getAsJsonObject();
+            assertThat(last.get("key").getAsLong(), is(1L));
+            assertThat(last.getAsJsonObject("content").get("c_string").getAsString(), is("last"));
+            assertThat(last.getAsJsonObject("content").has("id"), is(false));
+        }
+    }
+
+    @Test
+    void adaptiveBatch_GrowsBatchesUnderTargetLatency() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        URI from = storeRows(IntStream.range(0, 200).<Map<String, Object>>mapToObj(i -> Map.of("id", i, "c_int", i)).toList());
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.statement("[]"))) {
+            Upsert.Output output = Upsert.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .from(Property.ofValue(from.toString()))
+                .table(Property.ofValue(TABLE))
+                .maxInFlight(Property.ofValue(1))
+                .chunk(Property.ofValue(10))
+                .targetLatency(Property.ofValue(Duration.ofSeconds(1)))
+                .maxChunk(Property.ofValue(40))
+                .build().run(runContext);
+
+            assertThat(output.getWritten(), is(200L));
+            assertThat(output.getBatchSize(), is(40));
+            assertThat(output.getSmallestBatchSize(), is(10));
+            assertThat(output.getLargestBatchSize(), is(40));
+
+            // every batch executes in 1.5ms on the stand-in, so each one is a quarter larger than the previous
+            List<Integer> sizes = standIn.getRequests("query").stream()
+                .map(request -> request.variables().getAsJsonArray(Upsert.ROWS_PARAMETER).size())
+                .toList();
+            assertThat(sizes, contains(10, 12, 15, 18, 22, 27, 33, 40, 23));
+
+            Map<String, List<AbstractMetricEntry<?>>> metrics = runContext.metrics().stream().collect(Collectors.groupingBy(AbstractMetricEntry::getName));
+            assertThat((Double) metrics.get("batch.size.changes").getFirst().getValue(), is(7.0));
+            assertThat(metrics.containsKey("batch.size"), is(false));
+        }
+    }
+
+    @Test
+    void requestTimeout_LateReplyFailsInsteadOfOverwritingNewerRows() throws Exception {
+        URI from = storeRows(List.of(Map.of("id", 1, "c_string", "first"), Map.of("id", 1, "c_string", "second")));
+        AtomicInteger queries = new AtomicInteger();
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> {
+            if (queries.getAndIncrement() == 0) {
+                SurrealDBStandIn.answerLater(request, SurrealDBStandIn.statement("[]"), Duration.ofSeconds(2));
+                return null;
+            }
+            return SurrealDBStandIn.statement("[]");
+        })) {
+            Upsert task = Upsert.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .from(Property.ofValue(from.toString()))
+                .table(Property.ofValue(TABLE))
+                .chunk(Property.ofValue(1))
+                .maxInFlight(Property.ofValue(1))
+                .requestTimeout(Property.ofValue(Duration.ofSeconds(1)))
+                .build();
+
+            assertThrows(TimeoutException.class, () -> task.run(runContextFactory.of()));
+
+            // the second row is never sent where the late first one could overwrite it
+            assertThat(standIn.getRequests("query"), hasSize(1));
+        }
+    }
+
+    @Test
+    void maxRetries_StatementErrorsNotRetried() throws Exception {
+        URI from = storeRows(List.of(Map.of("id", 1, "c_string", "first")));
+
+        try (SurrealDBStandIn standIn = SurrealDBStandIn.start(request -> SurrealDBStandIn.error("Found a record with an invalid field"))) {
+            Upsert task = Upsert.builder()
+                .host(HOST)
+                .port(standIn.getPort())
+                .namespace(NAMESPACE)
+                .database(DATABASE)
+                .from(Property.ofValue(from.toString()))
+                .table(Property.ofValue(TABLE))
+                .maxRetries(Property.ofValue(3))
+                .build();
+
+            assertThrows(Exception.class, () -> task.run(runContextFactory.of()));
+            assertThat(standIn.getRequests("query"), hasSize(1));
+        }
+    }
+
+    @Test
+    void key_KeepsTheTypeOfTheKey() {
+        assertThat(Upsert.key(TABLE + ":42", TABLE), is(42L));
+        assertThat(Upsert.key(42, TABLE), is(42L));
+        assertThat(Upsert.key(TABLE + ":⟨a b⟩", TABLE), is("a b"));
+
+        assertThat(Upsert.key("42", TABLE), is("42"));
+        assertThat(Upsert.key("007", TABLE), is("007"));
+        assertThat(Upsert.key(TABLE + ":007", TABLE), is("007"));
+        assertThat(Upsert.key(TABLE + ":⟨42⟩", TABLE), is("42"));
+        assertThat(Upsert.key(TABLE + ":99999999999999999999", TABLE), is("99999999999999999999"));
+        assertThat(Upsert.key(1.5, TABLE), is(1.5));
+        assertThat(Upsert.key(1.9, TABLE), is(1.9));
+    }
+}